@@ -0,0 +1,47 @@
+package dataStore;
+
+import java.util.Arrays;
+
+/**
+ * Cost surface held in one contiguous array, indexed as cell * 8 + neighborNum.
+ *
+ * @author yaw
+ */
+public class ArrayCostSurface extends WritableCostSurface {
+
+    private final double[] costs;
+
+    public ArrayCostSurface(int numCells) {
+        costs = new double[numCells * 8];
+        Arrays.fill(costs, Double.MAX_VALUE);
+    }
+
+    // Copy of another cost surface.
+    public ArrayCostSurface(CostSurface other) {
+        if (other instanceof ArrayCostSurface) {
+            costs = ((ArrayCostSurface) other).costs.clone();
+        } else {
+            costs = new double[other.getNumCells() * 8];
+            for (int cell = 0; cell < other.getNumCells(); cell++) {
+                for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                    costs[cell * 8 + neighborNum] = other.getCost(cell, neighborNum);
+                }
+            }
+        }
+    }
+
+    @Override
+    public double getCost(int cell, int neighborNum) {
+        return costs[cell * 8 + neighborNum];
+    }
+
+    @Override
+    public void setCost(int cell, int neighborNum, double cost) {
+        costs[cell * 8 + neighborNum] = cost;
+    }
+
+    @Override
+    public int getNumCells() {
+        return costs.length / 8;
+    }
+}
@@ -0,0 +1,255 @@
+package dataStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parallel parser for the cost network files (Construction, RightOfWay and
+ * Routing Costs). After an 8 line header, each file is a sequence of line
+ * pairs: a cell line (center cell followed by its neighbor cells) and a cost
+ * line (one cost per neighbor, preceded by a label in the .txt format). The
+ * file is split into byte ranges that start on a cell line and the ranges
+ * are parsed concurrently straight into the cost surface. A first pass over
+ * the ranges marks the cells listed with costs, so that when few cells are
+ * passable the costs go straight into a sparse cost surface and no full
+ * array is allocated.
+ *
+ * @author yaw
+ */
+public class CostFileParser {
+
+    private static final int HEADER_LINES = 8;
+    private static final long MAX_CHUNK_SIZE = 1 << 28;     // Mapped chunks must stay under 2GB
+
+    public static WritableCostSurface parse(File file, DataStorer data) throws IOException {
+        boolean csv = file.getName().endsWith(".csv");
+        int numCells = data.getWidth() * data.getHeight() + 1;
+        WritableCostSurface costs;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long dataStart = skipLines(channel, 0, HEADER_LINES);
+
+            // Split data into raw byte ranges and count line breaks in each.
+            int numChunks = (int) Math.max(ForkJoinPool.getCommonPoolParallelism() * 4L, (size - dataStart) / MAX_CHUNK_SIZE + 1);
+            long[] bounds = new long[numChunks + 1];
+            for (int i = 0; i <= numChunks; i++) {
+                bounds[i] = dataStart + (size - dataStart) * i / numChunks;
+            }
+            ArrayList<LineCounter> counters = new ArrayList<>();
+            for (int i = 0; i < numChunks; i++) {
+                counters.add(new LineCounter(channel, bounds[i], bounds[i + 1]));
+            }
+            ForkJoinTask.invokeAll(counters);
+
+            // Move each range start forward to the next cell line, noting its line number.
+            long[] starts = new long[numChunks + 1];
+            long[] firstLines = new long[numChunks];
+            long linesBefore = 0;
+            for (int i = 0; i < numChunks; i++) {
+                int numSkipped = linesToCellLine(channel, bounds[i], linesBefore);
+                starts[i] = skipLines(channel, bounds[i], numSkipped);
+                firstLines[i] = HEADER_LINES + linesBefore + numSkipped + 1;
+                linesBefore += counters.get(i).lineBreaks;
+            }
+            starts[numChunks] = size;
+
+            // Mark passable cells, then parse ranges into a sparse surface if few are passable.
+            AtomicLongArray passable = new AtomicLongArray((numCells + 63) >>> 6);
+            ArrayList<ChunkParser> markers = new ArrayList<>();
+            for (int i = 0; i < numChunks; i++) {
+                if (starts[i] < starts[i + 1]) {
+                    MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, starts[i], starts[i + 1] - starts[i]);
+                    markers.add(new ChunkParser(chunk, firstLines[i], null, passable, data, csv));
+                }
+            }
+            ForkJoinTask.invokeAll(markers);
+            long[] passableCells = new long[passable.length()];
+            long numPassableCells = 0;
+            for (int i = 0; i < passableCells.length; i++) {
+                passableCells[i] = passable.get(i);
+                numPassableCells += Long.bitCount(passableCells[i]);
+            }
+            if (numPassableCells <= numCells * SparseCostSurface.MAX_PASSABLE_FRACTION) {
+                costs = new SparseCostSurface(passableCells, numCells);
+            } else {
+                costs = new ArrayCostSurface(numCells);
+            }
+
+            ArrayList<ChunkParser> parsers = new ArrayList<>();
+            for (ChunkParser marker : markers) {
+                parsers.add(new ChunkParser(marker.chunk, marker.firstLine, costs, null, data, csv));
+            }
+            ForkJoinTask.invokeAll(parsers);
+        } catch (RuntimeException e) {
+            throw new IOException(file + ": " + e.getMessage(), e);
+        }
+        return costs;
+    }
+
+    // Position after numLines line breaks from position.
+    private static long skipLines(FileChannel channel, long position, int numLines) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (numLines > 0) {
+            buffer.clear();
+            if (channel.read(buffer, position) < 0) {
+                return channel.size();
+            }
+            buffer.flip();
+            while (buffer.hasRemaining() && numLines > 0) {
+                position++;
+                if (buffer.get() == '\n') {
+                    numLines--;
+                }
+            }
+        }
+        return position;
+    }
+
+    // Line breaks from position to the first cell line starting at or after it, given the number of data lines broken
+    // before position.
+    private static int linesToCellLine(FileChannel channel, long position, long linesBefore) throws IOException {
+        if (position >= channel.size()) {
+            return 0;
+        }
+        int numSkipped = 0;
+        ByteBuffer previous = ByteBuffer.allocate(1);
+        channel.read(previous, position - 1);
+        if (previous.get(0) != '\n') {
+            // Mid line: move to start of next line.
+            numSkipped++;
+        }
+        if ((linesBefore + numSkipped) % 2 == 1) {
+            numSkipped++;
+        }
+        return numSkipped;
+    }
+
+    private static class LineCounter extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        public long lineBreaks;
+
+        public LineCounter(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                for (int i = 0; i < chunk.limit(); i++) {
+                    if (chunk.get(i) == '\n') {
+                        lineBreaks++;
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }
+    }
+
+    // Parses a range into costs, or with passable given, only marks the cells listed with at least one cost.
+    private static class ChunkParser extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer chunk;
+        private final long firstLine;   // Line number of the chunk's first line
+        private final WritableCostSurface costs;
+        private final AtomicLongArray passable;     // Bit per cell
+        private final DataStorer data;
+        private final boolean csv;
+
+        public ChunkParser(ByteBuffer chunk, long firstLine, WritableCostSurface costs, AtomicLongArray passable, DataStorer data, boolean csv) {
+            this.chunk = chunk;
+            this.firstLine = firstLine;
+            this.costs = costs;
+            this.passable = passable;
+            this.data = data;
+            this.csv = csv;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                FieldReader reader = new FieldReader(chunk.duplicate(), " \t,");
+                if (passable != null) {
+                    markPassable(reader);
+                    return;
+                }
+                int[] cells = new int[9];
+                long line = firstLine;  // Number of the next line
+                while (reader.nextLine()) {
+                    // Cell line
+                    long cellLine = line++;
+                    int numCells = 0;
+                    while (reader.hasField()) {
+                        if (numCells == cells.length) {
+                            throw new IOException("line " + cellLine + ": cell " + cells[0] + " has more than 8 neighbors");
+                        }
+                        cells[numCells++] = reader.nextInt();
+                    }
+                    if (numCells == 0 || !reader.nextLine()) {
+                        continue;
+                    }
+                    line++;
+
+                    // Cost line
+                    if (!csv) {
+                        reader.skipFields(1);    // Label
+                    }
+                    int centerCell = cells[0];
+                    for (int i = 1; i < numCells && reader.hasField(); i++) {
+                        int neighborNum = data.getNeighborNum(centerCell, cells[i]);
+                        if (neighborNum < 0) {
+                            throw new IOException("line " + cellLine + ": cell " + cells[i] + " is not a neighbor of cell " + centerCell);
+                        }
+                        costs.setCost(centerCell, neighborNum, reader.nextDouble());
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }
+
+        private void markPassable(FieldReader reader) throws IOException {
+            int numCells = data.getWidth() * data.getHeight() + 1;
+            while (reader.nextLine()) {
+                // Cell line
+                if (!reader.hasField()) {
+                    continue;
+                }
+                int centerCell = reader.nextInt();
+                boolean hasNeighbor = reader.hasField();
+                if (!reader.nextLine()) {
+                    return;
+                }
+
+                // Cost line. Cells out of range are left to be reported by the parse.
+                if (!csv) {
+                    reader.skipFields(1);    // Label
+                }
+                if (hasNeighbor && reader.hasField() && centerCell >= 0 && centerCell < numCells) {
+                    long bit = 1L << centerCell;
+                    passable.getAndAccumulate(centerCell >>> 6, bit, (word, b) -> word | b);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package dataStore;
+
+/**
+ * Cost of moving from each cell of the cost surface to each of its eight
+ * neighbors. Cell numbering starts at 1. Neighbor numbering starts in upper
+ * left as 0 and goes in clockwise direction. Missing edges cost
+ * Double.MAX_VALUE.
+ *
+ * @author yaw
+ */
+public abstract class CostSurface {
+
+    public static final double DIAGONAL_LENGTH = Math.sqrt(2);
+
+    private double minCostPerStepLength = -1;   // Computed on first use
+
+    public abstract double getCost(int cell, int neighborNum);
+
+    // Number of cells, including the unused cell 0.
+    public abstract int getNumCells();
+
+    // Lowest finite edge cost divided by step length (1 orthogonal, sqrt(2) diagonal). Used as a search heuristic bound.
+    public double getMinCostPerStepLength() {
+        if (minCostPerStepLength < 0) {
+            double min = Double.MAX_VALUE;
+            for (int cell = 1; cell < getNumCells(); cell++) {
+                for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                    double cost = getCost(cell, neighborNum);
+                    if (cost < Double.MAX_VALUE) {
+                        min = Math.min(min, neighborNum % 2 == 0 ? cost / DIAGONAL_LENGTH : cost);
+                    }
+                }
+            }
+            minCostPerStepLength = min == Double.MAX_VALUE ? 0 : Math.max(min, 0);
+        }
+        return minCostPerStepLength;
+    }
+
+    // Lowest cost per step length when it is already known, as stored in a binary cost surface, so it is not scanned for.
+    protected void setMinCostPerStepLength(double minCostPerStepLength) {
+        this.minCostPerStepLength = minCostPerStepLength;
+    }
+}
@@ -0,0 +1,213 @@
+package dataStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import static utilities.Utilities.replaceFile;
+
+/**
+ * Binary, memory-mapped form of the cost network.
+ *
+ * Layout (little-endian): a fixed 96 byte header (magic, version, width,
+ * height, lowerLeftX, lowerLeftY, cellSize, layer flags, then each layer's
+ * lowest cost per step length) followed by one block of
+ * (width * height + 1) * 8 doubles per layer present, in construction,
+ * right of way, routing order. Cell c, neighbor n is at index c * 8 + n of
+ * its block. The lowest costs are found once as the file is written, so
+ * searches over the mapped layers never scan them for it.
+ *
+ * @author yaw
+ */
+public class CostSurfaceFile {
+
+    public static final String FILE_NAME = "Costs.bin";
+
+    public static final int CONSTRUCTION = 0;
+    public static final int RIGHT_OF_WAY = 1;
+    public static final int ROUTING = 2;
+
+    private static final int MAGIC = 0x53434353;    // "SCCS"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 96;
+    private static final int VERSION_1_HEADER_SIZE = 64;    // Version 1 files have no lowest costs, so they are scanned for
+
+    // Layers are mapped in segments since a single mapping is limited to 2GB.
+    private static final int SEGMENT_SHIFT = 24;    // Cells per segment: 2^24 (1GB of doubles)
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    private int width;
+    private int height;
+    private double lowerLeftX;
+    private double lowerLeftY;
+    private double cellSize;
+    private MappedLayer[] layers = new MappedLayer[3];
+
+    private CostSurfaceFile() {
+    }
+
+    // Write cost layers to a binary cost surface file. Absent layers may be null. The file is written beside file and
+    // renamed over it once whole, so processes mapping the old file keep their pages and none sees a partial file.
+    public static void write(File file, int width, int height, double lowerLeftX, double lowerLeftY, double cellSize, CostSurface[] costLayers) throws IOException {
+        File tempFile = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            writeLayers(tempFile, width, height, lowerLeftX, lowerLeftY, cellSize, costLayers);
+            replaceFile(tempFile, file);
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    private static void writeLayers(File file, int width, int height, double lowerLeftX, double lowerLeftY, double cellSize, CostSurface[] costLayers) throws IOException {
+        int flags = 0;
+        for (int layer = 0; layer < costLayers.length; layer++) {
+            if (costLayers[layer] != null) {
+                flags |= 1 << layer;
+            }
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(width);
+            header.putInt(height);
+            header.putDouble(lowerLeftX);
+            header.putDouble(lowerLeftY);
+            header.putDouble(cellSize);
+            header.putInt(flags);
+            for (CostSurface costs : costLayers) {
+                header.putDouble(costs != null ? costs.getMinCostPerStepLength() : 0);
+            }
+            header.rewind();
+            channel.write(header);
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(8 * 8 * 8192).order(ByteOrder.LITTLE_ENDIAN);
+            int numCells = width * height + 1;
+            for (CostSurface costs : costLayers) {
+                if (costs == null) {
+                    continue;
+                }
+                for (int cell = 0; cell < numCells; cell++) {
+                    for (int neighbor = 0; neighbor < 8; neighbor++) {
+                        buffer.putDouble(costs.getCost(cell, neighbor));
+                    }
+                    if (!buffer.hasRemaining()) {
+                        buffer.flip();
+                        while (buffer.hasRemaining()) {
+                            channel.write(buffer);
+                        }
+                        buffer.clear();
+                    }
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+    }
+
+    // Map a binary cost surface file read only. Pages are shared with any other process mapping the same file.
+    public static CostSurfaceFile open(File file) throws IOException {
+        CostSurfaceFile surface = new CostSurfaceFile();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                throw new IOException(file + " is not a cost surface file.");
+            }
+            int version = header.getInt();
+            if (version != VERSION && version != 1) {
+                throw new IOException(file + " has an unsupported cost surface version.");
+            }
+            surface.width = header.getInt();
+            surface.height = header.getInt();
+            surface.lowerLeftX = header.getDouble();
+            surface.lowerLeftY = header.getDouble();
+            surface.cellSize = header.getDouble();
+            int flags = header.getInt();
+            double[] minCostsPerStepLength = new double[surface.layers.length];
+            for (int layer = 0; layer < surface.layers.length; layer++) {
+                minCostsPerStepLength[layer] = version == 1 ? -1 : header.getDouble();
+            }
+
+            long numCells = (long) surface.width * surface.height + 1;
+            long layerBytes = numCells * 8 * 8;
+            long offset = version == 1 ? VERSION_1_HEADER_SIZE : HEADER_SIZE;
+            for (int layer = 0; layer < surface.layers.length; layer++) {
+                if ((flags & (1 << layer)) == 0) {
+                    continue;
+                }
+                if (offset + layerBytes > channel.size()) {
+                    throw new IOException(file + " is truncated.");
+                }
+                int numSegments = (int) ((numCells + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+                DoubleBuffer[] segments = new DoubleBuffer[numSegments];
+                for (int s = 0; s < numSegments; s++) {
+                    long segmentCells = Math.min(1L << SEGMENT_SHIFT, numCells - ((long) s << SEGMENT_SHIFT));
+                    long segmentOffset = offset + ((long) s << SEGMENT_SHIFT) * 8 * 8;
+                    segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, segmentOffset, segmentCells * 8 * 8).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+                }
+                surface.layers[layer] = new MappedLayer(segments, (int) numCells);
+                if (minCostsPerStepLength[layer] >= 0) {
+                    surface.layers[layer].setMinCostPerStepLength(minCostsPerStepLength[layer]);
+                }
+                offset += layerBytes;
+            }
+        }
+        return surface;
+    }
+
+    // Cost layer view onto the mapped file, or null if the layer is absent.
+    public CostSurface getLayer(int layer) {
+        return layers[layer];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public double getLowerLeftX() {
+        return lowerLeftX;
+    }
+
+    public double getLowerLeftY() {
+        return lowerLeftY;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    private static class MappedLayer extends CostSurface {
+
+        private final DoubleBuffer[] segments;
+        private final int numCells;
+
+        public MappedLayer(DoubleBuffer[] segments, int numCells) {
+            this.segments = segments;
+            this.numCells = numCells;
+        }
+
+        @Override
+        public double getCost(int cell, int neighborNum) {
+            return segments[cell >>> SEGMENT_SHIFT].get(((cell & SEGMENT_MASK) << 3) + neighborNum);
+        }
+
+        @Override
+        public int getNumCells() {
+            return numCells;
+        }
+    }
+}
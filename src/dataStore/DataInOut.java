@@ -1,9 +1,7 @@
 package dataStore;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -33,10 +31,15 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static utilities.Utilities.*;
 
 import solver.GreedyHeuristic;
+import solver.RouteCache;
+import solver.RoutingHierarchy;
 
 /**
  *
@@ -48,12 +51,20 @@ public class DataInOut {
     private static String dataset;
     private static String scenario;
     private static DataStorer data;
+    private static long bytesRead;    // Text read by loadData
+
+    // Sources of the cost layers and geography, as chosen by costSource.
+    private static final int COST_RASTERS = 0;
+    private static final int BINARY_COSTS = 1;
+    private static final int COST_NETWORK = 2;
 
     public static void loadData(String basePath, String dataset, String scenario, DataStorer data) {
         DataInOut.basePath = basePath;
         DataInOut.dataset = dataset;
         DataInOut.scenario = scenario;
         DataInOut.data = data;
+        bytesRead = 0;
+        long startTime = System.nanoTime();
 
         System.out.println("Loading Geography...");
         loadGeography();
@@ -67,246 +78,327 @@ public class DataInOut {
         loadDelaunayPairs();
         System.out.print("Loading Candidate Graph...");
         loadCandidateGraph();
-        System.out.println("Data Loaded.");
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.println("Data Loaded (" + String.format("%.2f", bytesRead / 1e6) + " MB at " + String.format("%.1f", bytesRead / 1e6 / seconds) + " MB/s).");
     }
 
     private static void loadGeography() {
+        // Read geography from the construction cost raster if there is no cost network.
+        int costSource = costSource();
+        if (costSource == COST_RASTERS) {
+            try {
+                RasterCostSurface raster = RasterCostSurface.read(new File(costRasterPath() + "Construction Costs.asc"), true);
+                data.setWidth(raster.getWidth());
+                data.setHeight(raster.getHeight());
+                data.setLowerLeftX(raster.getLowerLeftX());
+                data.setLowerLeftY(raster.getLowerLeftY());
+                data.setCellSize(raster.getCellSize());
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+            return;
+        }
+
+        // Read geography from binary cost surface if it is up to date.
+        if (costSource == BINARY_COSTS) {
+            try {
+                CostSurfaceFile surface = CostSurfaceFile.open(binaryCostsFile());
+                data.setWidth(surface.getWidth());
+                data.setHeight(surface.getHeight());
+                data.setLowerLeftX(surface.getLowerLeftX());
+                data.setLowerLeftY(surface.getLowerLeftY());
+                data.setCellSize(surface.getCellSize());
+                return;
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+
         String path = basePath + "/" + dataset + "/BaseData/CostNetwork/Construction Costs.txt";
-        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-            br.readLine();
-            br.readLine();
+        if (!new File(path).exists()) {
+            path = basePath + "/" + dataset + "/BaseData/CostNetwork/Construction Costs.csv";
+        }
+        try (FieldReader reader = new FieldReader(path, " \t,")) {
+            reader.nextLine();
+            reader.nextLine();
 
             // Read dimensions.
-            String line = br.readLine();
-            String[] elements = line.split("\\s+");
-            data.setWidth(Integer.parseInt(elements[1]));
+            reader.nextLine();
+            reader.skipFields(1);
+            data.setWidth(reader.nextInt());
 
-            line = br.readLine();
-            elements = line.split("\\s+");
-            data.setHeight(Integer.parseInt(elements[1]));
+            reader.nextLine();
+            reader.skipFields(1);
+            data.setHeight(reader.nextInt());
 
             // Read conversions.
-            line = br.readLine();
-            elements = line.split("\\s+");
-            data.setLowerLeftX(Double.parseDouble(elements[1]));
+            reader.nextLine();
+            reader.skipFields(1);
+            data.setLowerLeftX(reader.nextDouble());
 
-            line = br.readLine();
-            elements = line.split("\\s+");
-            data.setLowerLeftY(Double.parseDouble(elements[1]));
+            reader.nextLine();
+            reader.skipFields(1);
+            data.setLowerLeftY(reader.nextDouble());
 
-            line = br.readLine();
-            elements = line.split("\\s+");
-            data.setCellSize(Double.valueOf(elements[1]));
+            reader.nextLine();
+            reader.skipFields(1);
+            data.setCellSize(reader.nextDouble());
         } catch (IOException e) {
-            path = basePath + "/" + dataset + "/BaseData/CostNetwork/Construction Costs.csv";
-            try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-                br.readLine();
-                br.readLine();
-
-                // Read dimensions.
-                String line = br.readLine();
-                String[] elements = line.split(",");
-                data.setWidth(Integer.parseInt(elements[1]));
-
-                line = br.readLine();
-                elements = line.split(",");
-                data.setHeight(Integer.parseInt(elements[1]));
-
-                // Read conversions.
-                line = br.readLine();
-                elements = line.split(",");
-                data.setLowerLeftX(Double.parseDouble(elements[1]));
-
-                line = br.readLine();
-                elements = line.split(",");
-                data.setLowerLeftY(Double.parseDouble(elements[1]));
-
-                line = br.readLine();
-                elements = line.split(",");
-                data.setCellSize(Double.valueOf(elements[1]));
-            } catch (IOException e2) {
-                System.out.println(e.getMessage());
-            }
+            System.out.println(e.getMessage());
         }
     }
 
     public static void loadCosts() {
-        double[][] rightOfWayCosts = new double[0][0];
-        double[][] constructionCosts = new double[0][0];
-        double[][] routingCosts = new double[0][0];
-
-        String path = basePath + "/" + dataset + "/BaseData/CostNetwork/Construction Costs.csv";
-
-        // Load construction costs from csv file.
-        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-            // Create construction costs array.
-            constructionCosts = new double[data.getWidth() * data.getHeight() + 1][8];
-            for (int i = 0; i < constructionCosts.length; i++) {
-                for (int j = 0; j < constructionCosts[i].length; j++) {
-                    constructionCosts[i][j] = Double.MAX_VALUE;
+        // Without a cost network, compute edge costs from per cell cost rasters.
+        int costSource = costSource();
+        String rasterPath = costRasterPath();
+        if (costSource == COST_RASTERS) {
+            setCostLayers(loadCostRaster(new File(rasterPath + "Construction Costs.asc")), loadCostRaster(new File(rasterPath + "RightOfWay Costs.asc")), loadCostRaster(new File(rasterPath + "Routing Costs.asc")));
+            return;
+        }
+
+        // Map binary cost surface if it is up to date.
+        File binaryCosts = binaryCostsFile();
+        if (costSource == BINARY_COSTS) {
+            try {
+                CostSurfaceFile surface = CostSurfaceFile.open(binaryCosts);
+                if (data.getCostTileBuffer() >= 0) {
+                    setTiledCosts(surface, binaryCosts);
+                    return;
                 }
+                setCostLayers(reduceCostPrecision(surface.getLayer(CostSurfaceFile.CONSTRUCTION)), reduceCostPrecision(surface.getLayer(CostSurfaceFile.RIGHT_OF_WAY)), reduceCostPrecision(surface.getLayer(CostSurfaceFile.ROUTING)));
+                data.setRoutingCostsFingerprint(binaryCostsFingerprint(binaryCosts));
+                return;
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
             }
+        }
 
-            for (int i = 0; i < 8; i++) {
-                br.readLine();
-            }
+        // Parse the cost files concurrently, each split into chunks on the common fork-join pool.
+        String costNetworkPath = basePath + "/" + dataset + "/BaseData/CostNetwork/";
+        File constructionFile = new File(costNetworkPath + "Construction Costs.csv");
+        if (!constructionFile.exists()) {
+            constructionFile = new File(costNetworkPath + "Construction Costs.txt");
+        }
+        ForkJoinTask<WritableCostSurface> constructionTask = parseCostsAsync(constructionFile);
+        ForkJoinTask<WritableCostSurface> rightOfWayTask = parseCostsAsync(new File(costNetworkPath + "RightOfWay Costs.txt"));
+        ForkJoinTask<WritableCostSurface> routingTask = parseCostsAsync(new File(costNetworkPath + "Routing Costs.txt"));
 
-            String line = br.readLine();
-            while (line != null) {
-                String costLine = br.readLine();
-
-                int currentCellIndex = 0;
-                int nextCellIndex = line.indexOf(",");
-                int centerCell = Integer.parseInt(line.substring(currentCellIndex, nextCellIndex));
-                currentCellIndex = nextCellIndex + 1;
-                int currentCostIndex = 0;
-                int nextCostIndex = 0;
-                boolean moreNeighbors = true;
-                while (moreNeighbors) {
-                    nextCellIndex = line.indexOf(",", currentCellIndex);
-                    if (nextCellIndex == -1) {
-                        moreNeighbors = false;
-                        nextCellIndex = line.length();
-                    }
-                    int neighborCell = Integer.parseInt(line.substring(currentCellIndex, nextCellIndex));
-                    currentCellIndex = nextCellIndex + 1;
+        WritableCostSurface constructionCosts = joinCosts(constructionTask, true);
+        WritableCostSurface rightOfWayCosts = joinCosts(rightOfWayTask, false);
+        WritableCostSurface routingCosts = joinCosts(routingTask, false);
 
-                    nextCostIndex = costLine.indexOf(",", currentCostIndex);
-                    if (nextCostIndex == -1) {
-                        nextCostIndex = costLine.length();
-                    }
-                    double cost = Double.parseDouble(costLine.substring(currentCostIndex, nextCostIndex));
-                    currentCostIndex = nextCostIndex + 1;
-
-                    constructionCosts[centerCell][data.getNeighborNum(centerCell, neighborCell)] = cost;
-                }
+        // Convert to binary cost surface for faster loading next time. Missing routing costs are left out and derived when read.
+        try {
+            CostSurfaceFile.write(binaryCosts, data.getWidth(), data.getHeight(), data.getLowerLeftX(), data.getLowerLeftY(), data.getCellSize(), new CostSurface[]{constructionCosts, rightOfWayCosts, routingCosts});
 
-                line = br.readLine();
+            // Tiles are read from the binary file, so the full arrays can be dropped.
+            if (data.getCostTileBuffer() >= 0) {
+                setTiledCosts(CostSurfaceFile.open(binaryCosts), binaryCosts);
+                return;
             }
-
         } catch (IOException e) {
-            // Load construction costs from text file.
-            path = basePath + "/" + dataset + "/BaseData/CostNetwork/Construction Costs.txt";
-            try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-                // Create construction costs array.
-                constructionCosts = new double[data.getWidth() * data.getHeight() + 1][8];
-                for (int i = 0; i < constructionCosts.length; i++) {
-                    for (int j = 0; j < constructionCosts[i].length; j++) {
-                        constructionCosts[i][j] = Double.MAX_VALUE;
-                    }
-                }
+            binaryCosts.delete();
+            System.out.println(e.getMessage());
+        }
 
-                for (int i = 0; i < 8; i++) {
-                    br.readLine();
-                }
+        setCostLayers(reduceCostPrecision(constructionCosts), reduceCostPrecision(rightOfWayCosts), reduceCostPrecision(routingCosts));
+    }
 
-                String line = br.readLine();
-                while (line != null) {
-                    String costLine = br.readLine();
-                    String[] costs = costLine.split("\\s+");
-                    String[] cells = line.split("\\s+");
+    // Source of the cost layers and geography, the same for both. Rasters are used only without a cost network, so a
+    // binary cost surface, which is converted only from a cost network, is not taken over them. A binary cost surface
+    // older than the cost network is converted again from it.
+    private static int costSource() {
+        if (!costNetworkExists() && new File(costRasterPath() + "Construction Costs.asc").exists()) {
+            return COST_RASTERS;
+        } else if (binaryCostsCurrent(binaryCostsFile())) {
+            return BINARY_COSTS;
+        }
+        return COST_NETWORK;
+    }
 
-                    int centerCell = Integer.parseInt(cells[0]);
-                    for (int i = 1; i < costs.length; i++) {
-                        constructionCosts[centerCell][data.getNeighborNum(centerCell, Integer.parseInt(cells[i]))] = Double.parseDouble(costs[i]);
-                    }
-                    line = br.readLine();
-                }
-            } catch (IOException e2) {
-                System.out.println(e2.getMessage());
+    private static String costRasterPath() {
+        return basePath + "/" + dataset + "/BaseData/CostSurface/Ascii/";
+    }
+
+    private static File binaryCostsFile() {
+        return new File(basePath + "/" + dataset + "/BaseData/CostNetwork/" + CostSurfaceFile.FILE_NAME);
+    }
+
+    private static boolean costNetworkExists() {
+        String costNetworkPath = basePath + "/" + dataset + "/BaseData/CostNetwork/";
+        return new File(costNetworkPath + "Construction Costs.txt").exists() || new File(costNetworkPath + "Construction Costs.csv").exists();
+    }
+
+    // Read a per cell cost raster. Missing rasters give a null cost surface.
+    private static CostSurface loadCostRaster(File rasterFile) {
+        if (!rasterFile.exists()) {
+            return null;
+        }
+        try {
+            RasterCostSurface raster = RasterCostSurface.read(rasterFile, false);
+            if (raster.getWidth() != data.getWidth() || raster.getHeight() != data.getHeight()) {
+                System.out.println(rasterFile.getName() + " does not match the construction cost raster dimensions.");
+                return null;
             }
+            return raster;
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            return null;
         }
+    }
 
-        // Load right of way costs.  
-        path = basePath + "/" + dataset + "/BaseData/CostNetwork/RightOfWay Costs.txt";
-        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-            // Create right of way cost array.
-            rightOfWayCosts = new double[data.getWidth() * data.getHeight() + 1][8];
-            for (int i = 0; i < rightOfWayCosts.length; i++) {
-                for (int j = 0; j < rightOfWayCosts[i].length; j++) {
-                    rightOfWayCosts[i][j] = Double.MAX_VALUE;
-                }
+    // Start parsing a cost file on the common fork-join pool. Missing files give a null cost surface.
+    private static ForkJoinTask<WritableCostSurface> parseCostsAsync(File costFile) {
+        return ForkJoinPool.commonPool().submit(() -> {
+            if (!costFile.exists()) {
+                return null;
             }
+            return CostFileParser.parse(costFile, data);
+        });
+    }
 
-            for (int i = 0; i < 8; i++) {
-                br.readLine();
+    private static WritableCostSurface joinCosts(ForkJoinTask<WritableCostSurface> parseTask, boolean required) {
+        try {
+            WritableCostSurface costs = parseTask.get();
+            if (costs == null && required) {
+                System.out.println("Construction costs not found.");
             }
+            return costs;
+        } catch (InterruptedException | ExecutionException e) {
+            System.out.println(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            return null;
+        }
+    }
 
-            String line = br.readLine();
-            while (line != null) {
-                String costLine = br.readLine();
-                String[] costs = costLine.split("\\s+");
-                String[] cells = line.split("\\s+");
-                int centerCell = Integer.parseInt(cells[0]);
-                for (int i = 1; i < costs.length; i++) {
-                    rightOfWayCosts[centerCell][data.getNeighborNum(centerCell, Integer.parseInt(cells[i]))] = Double.parseDouble(costs[i]);
-                }
-                line = br.readLine();
-            }
-        } catch (IOException e) {
-            rightOfWayCosts = null;
+    // Use tiled views of the binary cost surface, loading only the tiles near the sources and sinks.
+    private static void setTiledCosts(CostSurfaceFile surface, File binaryCosts) {
+        setCostLayers(tiledCosts(surface.getLayer(CostSurfaceFile.CONSTRUCTION)), tiledCosts(surface.getLayer(CostSurfaceFile.RIGHT_OF_WAY)), tiledCosts(surface.getLayer(CostSurfaceFile.ROUTING)));
+        data.setRoutingCostsFingerprint(binaryCostsFingerprint(binaryCosts));
+        data.loadCostTiles();
+    }
+
+    // Fingerprint of routing costs read from the binary cost surface, taken from its size and modification time rather
+    // than its contents so that no tiles are read for it.
+    private static long binaryCostsFingerprint(File binaryCosts) {
+        long hash = binaryCosts.length() * 0x9E3779B97F4A7C15L ^ binaryCosts.lastModified();
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL ^ data.getCostPrecision().hashCode();
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    // Without a routing cost layer, routing costs are the sum of construction and right of way costs.
+    private static void setCostLayers(CostSurface constructionCosts, CostSurface rightOfWayCosts, CostSurface routingCosts) {
+        data.setConstructionCosts(constructionCosts);
+        data.setRightOfWayCosts(rightOfWayCosts);
+        if (routingCosts == null && constructionCosts != null) {
+            routingCosts = new SumCostSurface(constructionCosts, rightOfWayCosts);
         }
+        data.setRoutingCosts(routingCosts);
+    }
 
-        // Load routing costs.
-        path = basePath + "/" + dataset + "/BaseData/CostNetwork/Routing Costs.txt";
-        routingCosts = new double[data.getWidth() * data.getHeight() + 1][8];
-        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-            for (int i = 0; i < routingCosts.length; i++) {
-                for (int j = 0; j < routingCosts[i].length; j++) {
-                    routingCosts[i][j] = Double.MAX_VALUE;
-                }
-            }
+    private static CostSurface tiledCosts(CostSurface costs) {
+        if (costs == null) {
+            return null;
+        }
+        return new TiledCostSurface(costs, data.getWidth(), data.getHeight());
+    }
 
-            for (int i = 0; i < 8; i++) {
-                br.readLine();
+    // Convert cost layer to the storage precision selected in the data storer. Full precision layers parsed into memory
+    // are already sparse when few cells are passable.
+    private static CostSurface reduceCostPrecision(CostSurface costs) {
+        if (costs == null) {
+            return null;
+        } else if (data.getCostPrecision().equals("f")) {
+            return new FloatCostSurface(costs);
+        } else if (data.getCostPrecision().equals("q")) {
+            return new QuantizedCostSurface(costs);
+        } else if (costs instanceof SparseCostSurface) {
+            SparseCostSurface sparseCosts = (SparseCostSurface) costs;
+            System.out.println("Sparse cost layer: " + sparseCosts.getNumPassableCells() + " of " + (costs.getNumCells() - 1) + " cells passable, " + String.format("%.1f", sparseCosts.getBytesSaved() / 1e6) + " MB saved.");
+        }
+        return costs;
+    }
+
+    // Map the full precision binary cost surface, if available.
+    public static CostSurfaceFile loadFullPrecisionCosts() {
+        if (costSource() == BINARY_COSTS) {
+            try {
+                return CostSurfaceFile.open(binaryCostsFile());
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
             }
+        }
+        return null;
+    }
 
-            String line = br.readLine();
-            while (line != null) {
-                String costLine = br.readLine();
-                String[] costs = costLine.split("\\s+");
-                String[] cells = line.split("\\s+");
-                int centerCell = Integer.parseInt(cells[0]);
-                for (int i = 1; i < costs.length; i++) {
-                    routingCosts[centerCell][data.getNeighborNum(centerCell, Integer.parseInt(cells[i]))] = Double.parseDouble(costs[i]);
+    // Read the routing hierarchy persisted next to the cost network, or build and save it if it is missing or out of date.
+    public static RoutingHierarchy loadRoutingHierarchy() {
+        CostSurface routingCosts = data.getRoutingCosts();
+        int numCells = data.getWidth() * data.getHeight() + 1;
+        long fingerprint = RoutingHierarchy.fingerprint(routingCosts, numCells);
+        File hierarchyFile = new File(basePath + "/" + dataset + "/BaseData/CostNetwork/" + RoutingHierarchy.FILE_NAME);
+        if (hierarchyFile.exists()) {
+            try {
+                RoutingHierarchy hierarchy = RoutingHierarchy.read(hierarchyFile, numCells, fingerprint);
+                if (hierarchy != null) {
+                    return hierarchy;
                 }
-                line = br.readLine();
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
             }
+        }
+
+        System.out.println("Building routing hierarchy...");
+        RoutingHierarchy hierarchy = RoutingHierarchy.build(routingCosts, data.getWidth(), data.getHeight());
+        try {
+            hierarchyFile.getParentFile().mkdirs();
+            hierarchy.write(hierarchyFile);
         } catch (IOException e) {
-            for (int i = 0; i < routingCosts.length; i++) {
-                for (int j = 0; j < routingCosts[i].length; j++) {
-                    routingCosts[i][j] = constructionCosts[i][j];
-                    if (rightOfWayCosts != null) {
-                        routingCosts[i][j] += rightOfWayCosts[i][j];
-                    }
-                }
-            }
+            System.out.println(e.getMessage());
         }
+        return hierarchy;
+    }
 
-        data.setConstructionCosts(constructionCosts);
-        data.setRightOfWayCosts(rightOfWayCosts);
-        data.setRoutingCosts(routingCosts);
+    // Disk tier of the route cache for routing costs with the given fingerprint.
+    public static File getRouteCacheFile(long fingerprint) {
+        return new File(basePath + "/" + dataset + "/BaseData/CostNetwork/" + RouteCache.DIRECTORY_NAME + "/" + String.format("%016x", fingerprint) + ".bin");
+    }
+
+    // Binary cost surface is current if it is newer than each of the text cost files.
+    private static boolean binaryCostsCurrent(File binaryCosts) {
+        if (!binaryCosts.exists()) {
+            return false;
+        }
+        String costNetworkPath = basePath + "/" + dataset + "/BaseData/CostNetwork/";
+        for (String name : new String[]{"Construction Costs.csv", "Construction Costs.txt", "RightOfWay Costs.txt", "Routing Costs.txt"}) {
+            File textCosts = new File(costNetworkPath + name);
+            if (textCosts.exists() && textCosts.lastModified() > binaryCosts.lastModified()) {
+                return false;
+            }
+        }
+        return true;
     }
 
     private static void loadSources() {
         String sourcePath = basePath + "/" + dataset + "/Scenarios/" + scenario + "/Sources/Sources.txt";
-        try (BufferedReader br = new BufferedReader(new FileReader(sourcePath))) {
-            br.readLine();
-            String line = br.readLine();
+        try (FieldReader reader = new FieldReader(sourcePath, FieldReader.WHITESPACE)) {
+            reader.nextLine();
             ArrayList<Source> sources = new ArrayList<>();
-            while (line != null) {
-                String[] elements = line.split("\\s+");
+            while (reader.nextLine()) {
                 Source source = new Source(data);
-                source.setLabel(elements[0]);
-                source.setCellNum(data.latLonToCell(Double.parseDouble(elements[7]), Double.parseDouble(elements[6])));
-                source.setOpeningCost(Double.parseDouble(elements[1]));
-                source.setOMCost(Double.parseDouble(elements[2]));
-                source.setCaptureCost(Double.parseDouble(elements[3]));
-                source.setProductionRates(csvToDoubleArray(elements[4]));
+                source.setLabel(reader.nextString());
+                source.setOpeningCost(reader.nextDouble());
+                source.setOMCost(reader.nextDouble());
+                source.setCaptureCost(reader.nextDouble());
+                source.setProductionRates(reader.nextDoubleArray());
+                reader.skipFields(1);
+                double lon = reader.nextDouble();
+                source.setCellNum(data.latLonToCell(reader.nextDouble(), lon));
                 sources.add(source);
-                line = br.readLine();
             }
             data.setSources(sources.toArray(new Source[0]));
+            bytesRead += reader.getBytesRead();
         } catch (IOException e) {
             System.out.println(e.getMessage());
         }
@@ -314,26 +406,27 @@ public class DataInOut {
 
     private static void loadSinks() {
         String sinkPath = basePath + "/" + dataset + "/Scenarios/" + scenario + "/Sinks/Sinks.txt";
-        try (BufferedReader br = new BufferedReader(new FileReader(sinkPath))) {
-            br.readLine();
-            String line = br.readLine();
+        try (FieldReader reader = new FieldReader(sinkPath, FieldReader.WHITESPACE)) {
+            reader.nextLine();
             ArrayList<Sink> sinks = new ArrayList<>();
-            while (line != null) {
-                String[] elements = line.split("\\s+");
+            while (reader.nextLine()) {
                 Sink sink = new Sink(data);
-                sink.setLabel(elements[0]);
-                sink.setCellNum(data.latLonToCell(Double.parseDouble(elements[11]), Double.parseDouble(elements[10])));
-                sink.setOpeningCost(Double.parseDouble(elements[3]));
-                sink.setOMCost(Double.parseDouble(elements[4]));
-                sink.setWellOpeningCost(Double.parseDouble(elements[6]));
-                sink.setWellOMCost(Double.parseDouble(elements[7]));
-                sink.setInjectionCost(Double.parseDouble(elements[8]));
-                sink.setWellCapacity(Double.parseDouble(elements[5]));
-                sink.setCapacities(csvToDoubleArray(elements[2]));
+                sink.setLabel(reader.nextString());
+                reader.skipFields(1);
+                sink.setCapacities(reader.nextDoubleArray());
+                sink.setOpeningCost(reader.nextDouble());
+                sink.setOMCost(reader.nextDouble());
+                sink.setWellCapacity(reader.nextDouble());
+                sink.setWellOpeningCost(reader.nextDouble());
+                sink.setWellOMCost(reader.nextDouble());
+                sink.setInjectionCost(reader.nextDouble());
+                reader.skipFields(1);
+                double lon = reader.nextDouble();
+                sink.setCellNum(data.latLonToCell(reader.nextDouble(), lon));
                 sinks.add(sink);
-                line = br.readLine();
             }
             data.setSinks(sinks.toArray(new Sink[0]));
+            bytesRead += reader.getBytesRead();
         } catch (IOException e) {
             System.out.println(e.getMessage());
         }
@@ -341,22 +434,21 @@ public class DataInOut {
 
     private static void loadTransport() {
         String transportPath = basePath + "/" + dataset + "/Scenarios/" + scenario + "/Transport/Linear.txt";
-        try (BufferedReader br = new BufferedReader(new FileReader(transportPath))) {
-            br.readLine();
-            String line = br.readLine();
+        try (FieldReader reader = new FieldReader(transportPath, FieldReader.WHITESPACE)) {
+            reader.nextLine();
             ArrayList<LinearComponent> linearComponents = new ArrayList<>();
-            while (line != null) {
-                String[] elements = line.split("\\s+");
+            while (reader.nextLine()) {
                 LinearComponent linearComponent = new LinearComponent(data);
-                linearComponent.setConSlope(Double.parseDouble(elements[1]));
-                linearComponent.setConIntercept(Double.parseDouble(elements[2]));
-                if (elements.length > 3) {
-                    linearComponent.setRowSlope(Double.parseDouble(elements[3]));
-                    linearComponent.setRowIntercept(Double.parseDouble(elements[4]));
+                reader.skipFields(1);
+                linearComponent.setConSlope(reader.nextDouble());
+                linearComponent.setConIntercept(reader.nextDouble());
+                if (reader.hasField()) {
+                    linearComponent.setRowSlope(reader.nextDouble());
+                    linearComponent.setRowIntercept(reader.nextDouble());
                 }
                 linearComponents.add(linearComponent);
-                line = br.readLine();
             }
+            bytesRead += reader.getBytesRead();
 
             // Set max pipeline capacities.
             for (int c = 0; c < linearComponents.size(); c++) {
@@ -382,59 +474,66 @@ public class DataInOut {
         String candidateGraphPath = basePath + "/" + dataset + "/Scenarios/" + scenario + "/Network/CandidateNetwork/CandidateNetwork.txt";
         if (new File(candidateGraphPath).exists()) {
             // Load from file.
-            try (BufferedReader br = new BufferedReader(new FileReader(candidateGraphPath))) {
-                String line = br.readLine();
+            try (FieldReader reader = new FieldReader(candidateGraphPath, FieldReader.WHITESPACE)) {
+                reader.nextLine();
+                String header = reader.readLine();
                 // Determine data version
                 int routeStarting = 5;
-                if (!line.startsWith("Vertex1")) {
+                if (!header.startsWith("Vertex1")) {
                     routeStarting = 4;
-                    br.readLine();
-                    br.readLine();
-                    br.readLine();
+                    reader.nextLine();
+                    reader.nextLine();
+                    reader.nextLine();
                 }
-                if (!line.contains("ConCost")) {
+                if (!header.contains("ConCost")) {
                     routeStarting = 3;
                 }
-                line = br.readLine();
+                boolean directionRoutes = header.contains("DirectionRoute");     // Start cell and step digits rather than cell lists
 
                 HashSet<Integer> graphVertices = new HashSet<>();
                 HashMap<Edge, Double> graphEdgeCosts = new HashMap<>();
                 HashMap<Edge, Double> graphEdgeConstructionCosts = new HashMap<>();
                 HashMap<Edge, Double> graphEdgeRightOfWayCosts = new HashMap<>();
 
-                HashMap<Edge, int[]> graphEdgeRoutes = new HashMap<>();
-                while (line != null) {
-                    String[] elements = line.split("\\s+");
-                    int v1 = Integer.parseInt(elements[0]);
-                    int v2 = Integer.parseInt(elements[1]);
+                HashMap<Edge, Route> graphEdgeRoutes = new HashMap<>();
+                int[] route = new int[1024];
+                while (reader.nextLine()) {
+                    int v1 = reader.nextInt();
+                    int v2 = reader.nextInt();
                     Edge edge = new Edge(v1, v2);
                     graphVertices.add(v1);
                     graphVertices.add(v2);
-                    double cost = Double.parseDouble(elements[2]);
+                    double cost = reader.nextDouble();
 
                     double conCost = 0;
                     double rowCost = 0;
                     if (routeStarting == 5) {
-                        conCost = Double.parseDouble(elements[3]);
-                        rowCost = Double.parseDouble(elements[4]);
-                    }
-
-                    ArrayList<Integer> route = new ArrayList<>();
-                    for (int i = routeStarting; i < elements.length; i++) {
-                        route.add(Integer.parseInt(elements[i]));
+                        conCost = reader.nextDouble();
+                        rowCost = reader.nextDouble();
+                    } else {
+                        reader.skipFields(routeStarting - 3);
                     }
 
                     graphEdgeCosts.put(edge, cost);
-                    graphEdgeRoutes.put(edge, convertIntegerArray(route.toArray(new Integer[0])));
+                    if (directionRoutes) {
+                        graphEdgeRoutes.put(edge, Route.parse(reader.nextString(), data.getWidth()));
+                    } else {
+                        int routeLength = 0;
+                        while (reader.hasField()) {
+                            if (routeLength == route.length) {
+                                route = Arrays.copyOf(route, route.length * 2);
+                            }
+                            route[routeLength++] = reader.nextInt();
+                        }
+                        graphEdgeRoutes.put(edge, new Route(Arrays.copyOf(route, routeLength), data.getWidth()));
+                    }
 
                     if (routeStarting == 5) {
                         graphEdgeConstructionCosts.put(edge, conCost);
                         graphEdgeRightOfWayCosts.put(edge, rowCost);
                     }
-
-                    // Prepare for next entry
-                    line = br.readLine();
                 }
+                bytesRead += reader.getBytesRead();
 
                 int[] vertices = new int[graphVertices.size()];
                 int i = 0;
@@ -466,23 +565,20 @@ public class DataInOut {
         String delaunayPairsPath = basePath + "/" + dataset + "/Scenarios/" + scenario + "/Network/DelaunayNetwork/DelaunayPaths.txt";
         if (new File(delaunayPairsPath).exists()) {
             // Load from file.
-            try (BufferedReader br = new BufferedReader(new FileReader(delaunayPairsPath))) {
-                br.readLine();
-                String line = br.readLine();
+            try (FieldReader reader = new FieldReader(delaunayPairsPath, FieldReader.WHITESPACE)) {
+                reader.nextLine();
 
                 HashSet<Edge> pairs = new HashSet<>();
-                while (line != null) {
-                    String[] elements = line.split("\\s+");
-                    int v1 = Integer.parseInt(elements[4]);
-                    int v2 = Integer.parseInt(elements[5]);
+                while (reader.nextLine()) {
+                    reader.skipFields(4);
+                    int v1 = reader.nextInt();
+                    int v2 = reader.nextInt();
                     Edge edge = new Edge(v1, v2);
                     pairs.add(edge);
-
-                    // Prepare for next entry
-                    line = br.readLine();
                 }
 
                 data.setDelaunayPairs(pairs);
+                bytesRead += reader.getBytesRead();
                 System.out.println();
             } catch (IOException e) {
                 System.out.println(e.getMessage());
@@ -497,14 +593,13 @@ public class DataInOut {
         String pricesPath = basePath + "/" + dataset + "/Scenarios/" + scenario + "/Configurations/priceInput.csv";
         if (new File(pricesPath).exists()) {
             // Load from file.
-            try (BufferedReader br = new BufferedReader(new FileReader(pricesPath))) {
-                br.readLine();
-                String line = br.readLine();
+            try (FieldReader reader = new FieldReader(pricesPath, ",")) {
+                reader.nextLine();
+                reader.nextLine();
 
-                String[] elements = line.split(",");
-                double min = Double.parseDouble(elements[0]);
-                double max = Double.parseDouble(elements[1]);
-                double step = Double.parseDouble(elements[2]);
+                double min = reader.nextDouble();
+                double max = reader.nextDouble();
+                double step = reader.nextDouble();
 
                 // Make prices array
                 int num = (int) Math.floor((max - min + 1) / step);
@@ -526,18 +621,15 @@ public class DataInOut {
         String timeConfigurationPath = basePath + "/" + dataset + "/Scenarios/" + scenario + "/Configurations/timeInput.csv";
         if (new File(timeConfigurationPath).exists()) {
             // Load from file.
-            try (BufferedReader br = new BufferedReader(new FileReader(timeConfigurationPath))) {
+            try (FieldReader reader = new FieldReader(timeConfigurationPath, ",")) {
                 ArrayList<double[]> timeEntries = new ArrayList<>();
-                br.readLine();
-                String line = br.readLine();
-                while (line != null) {
-                    String[] elements = line.split(",");
-                    double timeslot = Double.parseDouble(elements[0]);
-                    double numYears = Double.parseDouble(elements[1]);
-                    double capTarget = Double.parseDouble(elements[2]);
+                reader.nextLine();
+                while (reader.nextLine()) {
+                    double timeslot = reader.nextDouble();
+                    double numYears = reader.nextDouble();
+                    double capTarget = reader.nextDouble();
 
                     timeEntries.add(new double[]{timeslot, numYears, capTarget});
-                    line = br.readLine();
                 }
 
                 // Store time configuration
@@ -584,7 +676,7 @@ public class DataInOut {
 
     public static void saveCandidateGraph() {
         HashMap<Edge, Double> graphEdgeCosts = data.getGraphEdgeCosts();
-        HashMap<Edge, int[]> graphEdgeRoutes = data.getGraphEdgeRoutes();
+        HashMap<Edge, Route> graphEdgeRoutes = data.getGraphEdgeRoutes();
         HashMap<Edge, Double> graphEdgeConstructionCosts = data.getGraphEdgeConstructionCosts();
         HashMap<Edge, Double> graphEdgeRightOfWayCosts = data.getGraphEdgeRightOfWayCosts();
 
@@ -592,14 +684,10 @@ public class DataInOut {
 
         // Save to file.
         try (BufferedWriter bw = new BufferedWriter(new FileWriter(rawPathsPath))) {
-            bw.write("Vertex1\tVertex2\tCost\tConCost\tROWCost\tCellRoute\n");
+            bw.write("Vertex1\tVertex2\tCost\tConCost\tROWCost\tDirectionRoute\n");
             for (Edge e : graphEdgeRoutes.keySet()) {
                 bw.write(e.v1 + "\t" + e.v2 + "\t" + graphEdgeCosts.get(e) + "\t" + graphEdgeConstructionCosts.get(e) + "\t" + graphEdgeRightOfWayCosts.get(e));
-                int[] route = graphEdgeRoutes.get(e);
-                for (int vertex : route) {
-                    bw.write("\t" + vertex);
-                }
-                bw.write("\n");
+                bw.write("\t" + graphEdgeRoutes.get(e) + "\n");
             }
         } catch (IOException e) {
             System.out.println(e.getMessage());
@@ -661,47 +749,42 @@ public class DataInOut {
         Source[] sources = data.getSources();
         Sink[] sinks = data.getSinks();
 
-        try (BufferedReader br = new BufferedReader(new FileReader(solutionPath.toString() + "/solution.txt"))) {
-            String line = br.readLine();
-            soln.setCRF(Double.parseDouble(line.split("\t")[1]));
+        try (FieldReader reader = new FieldReader(solutionPath.toString() + "/solution.txt", "\t")) {
+            reader.nextLine();
+            reader.skipFields(1);
+            soln.setCRF(reader.nextDouble());
 
-            line = br.readLine();
+            reader.nextLine();
 
-            line = br.readLine();
-            soln.setProjectLength(Integer.parseInt(line.split("\t")[1]));
+            reader.nextLine();
+            reader.skipFields(1);
+            soln.setProjectLength(reader.nextInt());
 
-            line = br.readLine();
-            line = br.readLine();
-            while (!line.startsWith("Sink")) {
-                String[] sourceComponents = line.split("\t");
-                Source source = sources[data.sourceNum(Integer.parseInt(sourceComponents[0]))];
-                double captureAmount = Double.parseDouble(sourceComponents[2]);
-                double cost = Double.parseDouble(sourceComponents[3]);
+            reader.nextLine();
+            while (reader.nextLine() && !reader.lineStartsWith("Sink")) {
+                Source source = sources[data.sourceNum(reader.nextInt())];
+                reader.skipFields(1);
+                double captureAmount = reader.nextDouble();
+                double cost = reader.nextDouble();
                 soln.addSourceCaptureAmount(source, captureAmount);
                 soln.addSourceCostComponent(source, cost);
-                line = br.readLine();
             }
 
-            line = br.readLine();
-            while (!line.startsWith("EdgeSrc")) {
-                String[] sinkComponents = line.split("\t");
-                Sink sink = sinks[data.sinkNum(Integer.parseInt(sinkComponents[0]))];
-                double injectAmount = Double.parseDouble(sinkComponents[2]);
-                double cost = Double.parseDouble(sinkComponents[3]);
+            while (reader.nextLine() && !reader.lineStartsWith("EdgeSrc")) {
+                Sink sink = sinks[data.sinkNum(reader.nextInt())];
+                reader.skipFields(1);
+                double injectAmount = reader.nextDouble();
+                double cost = reader.nextDouble();
                 soln.addSinkStorageAmount(sink, injectAmount);
                 soln.addSinkCostComponent(sink, cost);
-                line = br.readLine();
             }
 
-            line = br.readLine();
-            while (line != null) {
-                String[] edgeComponents = line.split("\t");
-                Edge edge = new Edge(Integer.parseInt(edgeComponents[0]), Integer.parseInt(edgeComponents[1]));
-                double flowAmount = Double.parseDouble(edgeComponents[2]);
-                double cost = Double.parseDouble(edgeComponents[3]);
+            while (reader.nextLine()) {
+                Edge edge = new Edge(reader.nextInt(), reader.nextInt());
+                double flowAmount = reader.nextDouble();
+                double cost = reader.nextDouble();
                 soln.addEdgeTransportAmount(edge, flowAmount);
                 soln.addEdgeCostComponent(edge, cost);
-                line = br.readLine();
             }
         } catch (IOException e) {
             System.out.println(e.getMessage());
@@ -775,77 +858,70 @@ public class DataInOut {
         HashMap<String, Double> variableValues = new HashMap<>();
         HashMap<Integer, Integer> timeslotLengths = new HashMap<>();
 
-        try (BufferedReader br = new BufferedReader(new FileReader(solFile))) {
-            String line = br.readLine();
-            while (!line.equals(" <variables>")) {
-                line = br.readLine();
+        try (FieldReader reader = new FieldReader(solFile, "\"")) {
+            while (reader.nextLine() && !reader.lineStartsWith(" <variables>")) {
             }
-            line = br.readLine();
 
-            while (!line.equals(" </variables>")) {
-                String[] partition = line.split("\"");
-                String[] variable;
-                if (ilp) {
-                    variable = new String[]{partition[1], partition[3], partition[5]};
-                } else {
-                    variable = new String[]{partition[1], partition[3], partition[7]};
-                }
+            while (reader.nextLine() && !reader.lineStartsWith(" </variables>")) {
+                reader.skipFields(1);
+                String name = reader.nextString();
+                reader.skipFields(ilp ? 3 : 5);
+                double value = reader.nextDouble();
 
-                if (Double.parseDouble(variable[2]) > threshold) {
-                    variableValues.put(variable[0], Double.parseDouble(variable[2]));
-                    String[] components = variable[0].split("\\]\\[|\\[|\\]");
+                if (value > threshold) {
+                    variableValues.put(name, value);
+                    String[] components = name.split("\\]\\[|\\[|\\]");
                     if (timeslot == -1) {
                         if (components[0].equals("a")) {
-                            soln.addSourceCaptureAmount(sources[Integer.parseInt(components[1])], Double.parseDouble(variable[2]));
+                            soln.addSourceCaptureAmount(sources[Integer.parseInt(components[1])], value);
                         } else if (components[0].equals("b")) {
-                            soln.addSinkStorageAmount(sinks[Integer.parseInt(components[1])], Double.parseDouble(variable[2]));
+                            soln.addSinkStorageAmount(sinks[Integer.parseInt(components[1])], value);
                         } else if (components[0].equals("p")) {
                             if (components.length == 4) {
-                                soln.addEdgeTransportAmount(new Edge(vertexIndexToCell.get(Integer.parseInt(components[1])), vertexIndexToCell.get(Integer.parseInt(components[2]))), Double.parseDouble(variable[2]));  
+                                soln.addEdgeTransportAmount(new Edge(vertexIndexToCell.get(Integer.parseInt(components[1])), vertexIndexToCell.get(Integer.parseInt(components[2]))), value);  
                                 soln.setEdgeTrend(new Edge(vertexIndexToCell.get(Integer.parseInt(components[1])), vertexIndexToCell.get(Integer.parseInt(components[2]))), Integer.parseInt(components[3]));
                             } else {
                                 UnidirEdge unidirEdge = edgeIndexToEdge.get(Integer.parseInt(components[1]));
-                                soln.addEdgeTransportAmount(new Edge(unidirEdge.v1, unidirEdge.v2), Double.parseDouble(variable[2]));
+                                soln.addEdgeTransportAmount(new Edge(unidirEdge.v1, unidirEdge.v2), value);
                                 soln.setEdgeTrend(new Edge(unidirEdge.v1, unidirEdge.v2), Integer.parseInt(components[2]));
                             }
                         } else if (components[0].equals("w")) {
-                            soln.addSinkNumWells(sinks[Integer.parseInt(components[1])], Integer.parseInt(variable[2]));
+                            soln.addSinkNumWells(sinks[Integer.parseInt(components[1])], (int) Math.round(value));
                         }
                     } else {
                         if (components[0].equals("a") && (Integer.parseInt(components[2]) == timeslot)) {
-                            soln.addSourceCaptureAmount(sources[Integer.parseInt(components[1])], Double.parseDouble(variable[2]));
+                            soln.addSourceCaptureAmount(sources[Integer.parseInt(components[1])], value);
                         } else if (components[0].equals("b") && (Integer.parseInt(components[2]) == timeslot)) {
-                            soln.addSinkStorageAmount(sinks[Integer.parseInt(components[1])], Double.parseDouble(variable[2]));
+                            soln.addSinkStorageAmount(sinks[Integer.parseInt(components[1])], value);
                         } else if (components[0].equals("x")) {
                             if (components.length == 5) {
                                 if (Integer.parseInt(components[4]) == timeslot) {
-                                    soln.addEdgeTransportAmount(new Edge(vertexIndexToCell.get(Integer.parseInt(components[1])), vertexIndexToCell.get(Integer.parseInt(components[2]))), Double.parseDouble(variable[2]));
+                                    soln.addEdgeTransportAmount(new Edge(vertexIndexToCell.get(Integer.parseInt(components[1])), vertexIndexToCell.get(Integer.parseInt(components[2]))), value);
                                 }
                             } else {
                                 if (Integer.parseInt(components[3]) == timeslot) {
                                     UnidirEdge unidirEdge = edgeIndexToEdge.get(Integer.parseInt(components[1]));
-                                    soln.addEdgeTransportAmount(new Edge(unidirEdge.v1, unidirEdge.v2), Double.parseDouble(variable[2]));
+                                    soln.addEdgeTransportAmount(new Edge(unidirEdge.v1, unidirEdge.v2), value);
                                 }
                             }
                         } else if (components[0].equals("w") && (Integer.parseInt(components[2]) == timeslot)) {
-                            soln.addSinkNumWells(sinks[Integer.parseInt(components[1])], Integer.parseInt(variable[2]));
+                            soln.addSinkNumWells(sinks[Integer.parseInt(components[1])], (int) Math.round(value));
                         }
                     }
 
-                    if (variable[0].equals("crf")) {
-                        soln.setCRF(Double.parseDouble(variable[2]));
-                    } else if (variable[0].equals("projectLength")) {
-                        soln.setProjectLength(Integer.parseInt(variable[2]));
-                    } else if (variable[0].startsWith("N")) {
-                        int t = Integer.parseInt(variable[0].substring(1));
-                        int length = Integer.parseInt(variable[2]);
+                    if (name.equals("crf")) {
+                        soln.setCRF(value);
+                    } else if (name.equals("projectLength")) {
+                        soln.setProjectLength((int) Math.round(value));
+                    } else if (name.startsWith("N")) {
+                        int t = Integer.parseInt(name.substring(1));
+                        int length = (int) Math.round(value);
                         timeslotLengths.put(t, length);
                         if (t == timeslot) {
                             soln.setProjectLength(length);
                         }
                     }
                 }
-                line = br.readLine();
             }
         } catch (IOException e) {
             System.out.println(e.getMessage());
@@ -853,27 +929,25 @@ public class DataInOut {
 
         // load costs into solution.
         if (ilp) {
-            try (BufferedReader br = new BufferedReader(new FileReader(mpsFile))) {
-                String line = br.readLine();
-                while (!line.equals("COLUMNS")) {
-                    line = br.readLine();
+            try (FieldReader reader = new FieldReader(mpsFile, FieldReader.WHITESPACE)) {
+                while (reader.nextLine() && !reader.lineStartsWith("COLUMNS")) {
                 }
-                br.readLine();
-                line = br.readLine();
+                reader.nextLine();
 
-                while (!line.equals("RHS")) {
-                    String[] column = line.replaceFirst("\\s+", "").split("\\s+");
-                    if (column[1].equals("OBJ") && variableValues.keySet().contains(column[0])) {
-                        String[] components = column[0].split("\\]\\[|\\[|\\]");
+                while (reader.nextLine() && !reader.lineStartsWith("RHS")) {
+                    String name = reader.nextString();
+                    if (reader.nextFieldEquals("OBJ") && variableValues.keySet().contains(name)) {
+                        double coefficient = reader.nextDouble();
+                        String[] components = name.split("\\]\\[|\\[|\\]");
                         if (timeslot == -1) {
-                            if (column[0].charAt(0) == 's' || column[0].charAt(0) == 'a') {
-                                double cost = variableValues.get(column[0]) * Double.parseDouble(column[2]);
+                            if (name.charAt(0) == 's' || name.charAt(0) == 'a') {
+                                double cost = variableValues.get(name) * coefficient;
                                 soln.addSourceCostComponent(sources[Integer.parseInt(components[1])], cost);
-                            } else if (column[0].charAt(0) == 'r' || column[0].charAt(0) == 'w' || column[0].charAt(0) == 'b') {
-                                double cost = variableValues.get(column[0]) * Double.parseDouble(column[2]);
+                            } else if (name.charAt(0) == 'r' || name.charAt(0) == 'w' || name.charAt(0) == 'b') {
+                                double cost = variableValues.get(name) * coefficient;
                                 soln.addSinkCostComponent(sinks[Integer.parseInt(components[1])], cost);
-                            } else if (column[0].charAt(0) == 'p' || column[0].charAt(0) == 'y') {
-                                double cost = variableValues.get(column[0]) * Double.parseDouble(column[2]);
+                            } else if (name.charAt(0) == 'p' || name.charAt(0) == 'y') {
+                                double cost = variableValues.get(name) * coefficient;
                                 if (components.length == 4) {
                                     soln.addEdgeCostComponent(new Edge(vertexIndexToCell.get(Integer.parseInt(components[1])), vertexIndexToCell.get(Integer.parseInt(components[2]))), cost);
                                 } else {
@@ -882,13 +956,13 @@ public class DataInOut {
                                 }
                             }
                         } else {
-                            if ((column[0].charAt(0) == 's' || column[0].charAt(0) == 'a') && (Integer.parseInt(components[2]) == timeslot)) {
-                                double cost = variableValues.get(column[0]) * Double.parseDouble(column[2]) / timeslotLengths.get(timeslot);
+                            if ((name.charAt(0) == 's' || name.charAt(0) == 'a') && (Integer.parseInt(components[2]) == timeslot)) {
+                                double cost = variableValues.get(name) * coefficient / timeslotLengths.get(timeslot);
                                 soln.addSourceCostComponent(sources[Integer.parseInt(components[1])], cost);
-                            } else if ((column[0].charAt(0) == 'r' || column[0].charAt(0) == 'w' || column[0].charAt(0) == 'b') && (Integer.parseInt(components[2]) == timeslot)) {
-                                double cost = variableValues.get(column[0]) * Double.parseDouble(column[2]) / timeslotLengths.get(timeslot);
+                            } else if ((name.charAt(0) == 'r' || name.charAt(0) == 'w' || name.charAt(0) == 'b') && (Integer.parseInt(components[2]) == timeslot)) {
+                                double cost = variableValues.get(name) * coefficient / timeslotLengths.get(timeslot);
                                 soln.addSinkCostComponent(sinks[Integer.parseInt(components[1])], cost);
-                            } else if (column[0].charAt(0) == 'p' || column[0].charAt(0) == 'y') {
+                            } else if (name.charAt(0) == 'p' || name.charAt(0) == 'y') {
                                 if (components.length == 5) {
                                     // Need to account for pipelines still being paid off in current timeslot.
                                     int timeslotOpened = Integer.parseInt(components[4]);
@@ -898,7 +972,7 @@ public class DataInOut {
                                         for (int t = timeslotOpened; t < timeslotLengths.size(); t++) {
                                             timeRemaining += timeslotLengths.get(t);
                                         }
-                                        double cost = variableValues.get(column[0]) * Double.parseDouble(column[2]) / timeRemaining;
+                                        double cost = variableValues.get(name) * coefficient / timeRemaining;
                                         soln.addEdgeCostComponent(new Edge(vertexIndexToCell.get(Integer.parseInt(components[1])), vertexIndexToCell.get(Integer.parseInt(components[2]))), cost);
                                     }
                                 } else {
@@ -909,14 +983,13 @@ public class DataInOut {
                                             timeRemaining += timeslotLengths.get(t);
                                         }
                                         UnidirEdge unidirEdge = edgeIndexToEdge.get(Integer.parseInt(components[1]));
-                                        double cost = variableValues.get(column[0]) * Double.parseDouble(column[2]) / timeRemaining;
+                                        double cost = variableValues.get(name) * coefficient / timeRemaining;
                                         soln.addEdgeCostComponent(new Edge(unidirEdge.v1, unidirEdge.v2), cost);
                                     }
                                 }
                             }
                         }
                     }
-                    line = br.readLine();
                 }
             } catch (IOException e) {
                 System.out.println(e.getMessage());
@@ -932,21 +1005,17 @@ public class DataInOut {
         File mpsFile = new File(mpsFilePath);
         HashSet<Integer> timeslots = new HashSet<>();
 
-        try (BufferedReader br = new BufferedReader(new FileReader(mpsFile))) {
-            String line = br.readLine();
-            while (!line.equals("COLUMNS")) {
-                line = br.readLine();
+        try (FieldReader reader = new FieldReader(mpsFile, FieldReader.WHITESPACE)) {
+            while (reader.nextLine() && !reader.lineStartsWith("COLUMNS")) {
             }
-            br.readLine();
-            line = br.readLine();
+            reader.nextLine();
 
-            while (!line.equals("RHS")) {
-                String[] column = line.replaceFirst("\\s+", "").split("\\s+");
-                if (column[0].charAt(0) == 'a') {
-                    String[] components = column[0].split("\\]\\[|\\[|\\]");
+            while (reader.nextLine() && !reader.lineStartsWith("RHS")) {
+                String name = reader.nextString();
+                if (name.charAt(0) == 'a') {
+                    String[] components = name.split("\\]\\[|\\[|\\]");
                     timeslots.add(Integer.parseInt(components[2]));
                 }
-                line = br.readLine();
             }
         } catch (IOException e) {
             System.out.println(e.getMessage());
@@ -967,7 +1036,7 @@ public class DataInOut {
             HashMap<Source, Double> sourceCaptureAmounts = soln.getSourceCaptureAmounts();
             HashMap<Sink, Double> sinkStorageAmounts = soln.getSinkStorageAmounts();
             HashMap<Edge, Double> edgeTransportAmounts = soln.getEdgeTransportAmounts();
-            HashMap<Edge, int[]> graphEdgeRoutes = data.getGraphEdgeRoutes();
+            HashMap<Edge, Route> graphEdgeRoutes = data.getGraphEdgeRoutes();
 
             // Make source shapefiles.
             EsriPointList sourceList = new EsriPointList();
@@ -1098,12 +1167,12 @@ public class DataInOut {
             }
             for (Edge edg : soln.getOpenedEdges()) {
                 // Build route
-                int[] route = graphEdgeRoutes.get(edg);
-                double[] routeLatLon = new double[route.length * 2];    // Route cells translated into: lat, lon, lat, lon,...
-                for (int i = 0; i < route.length; i++) {
-                    int cell = route[i];
-                    routeLatLon[i * 2] = data.cellToLatLon(cell)[0];
-                    routeLatLon[i * 2 + 1] = data.cellToLatLon(cell)[1];
+                Route route = graphEdgeRoutes.get(edg);
+                double[] routeLatLon = new double[route.getNumCells() * 2];    // Route cells translated into: lat, lon, lat, lon,...
+                int coordinate = 0;
+                for (int cell : route) {
+                    routeLatLon[coordinate++] = data.cellToLatLon(cell)[0];
+                    routeLatLon[coordinate++] = data.cellToLatLon(cell)[1];
                 }
 
                 EsriPolyline edge = new EsriPolyline(routeLatLon, OMGraphic.DECIMAL_DEGREES, OMGraphic.LINETYPE_STRAIGHT);
@@ -1137,7 +1206,7 @@ public class DataInOut {
             // Collect data.
             Source[] sources = data.getSources();
             Sink[] sinks = data.getSinks();
-            HashMap<Edge, int[]> graphEdgeRoutes = data.getGraphEdgeRoutes();
+            HashMap<Edge, Route> graphEdgeRoutes = data.getGraphEdgeRoutes();
 
             // Make source shapefiles.
             EsriPointList sourceList = new EsriPointList();
@@ -1244,12 +1313,12 @@ public class DataInOut {
             }
             for (Edge edg : graphEdgeRoutes.keySet()) {
                 // Build route
-                int[] route = graphEdgeRoutes.get(edg);
-                double[] routeLatLon = new double[route.length * 2];    // Route cells translated into: lat, lon, lat, lon,...
-                for (int i = 0; i < route.length; i++) {
-                    int cell = route[i];
-                    routeLatLon[i * 2] = data.cellToLatLon(cell)[0];
-                    routeLatLon[i * 2 + 1] = data.cellToLatLon(cell)[1];
+                Route route = graphEdgeRoutes.get(edg);
+                double[] routeLatLon = new double[route.getNumCells() * 2];    // Route cells translated into: lat, lon, lat, lon,...
+                int coordinate = 0;
+                for (int cell : route) {
+                    routeLatLon[coordinate++] = data.cellToLatLon(cell)[0];
+                    routeLatLon[coordinate++] = data.cellToLatLon(cell)[1];
                 }
 
                 EsriPolyline edge = new EsriPolyline(routeLatLon, OMGraphic.DECIMAL_DEGREES, OMGraphic.LINETYPE_STRAIGHT);
@@ -1338,7 +1407,7 @@ public class DataInOut {
             HashMap<Source, Double> sourceCaptureAmounts = soln.getSourceCaptureAmounts();
             HashMap<Sink, Double> sinkStorageAmounts = soln.getSinkStorageAmounts();
             HashMap<Edge, Double> edgeTransportAmounts = soln.getEdgeTransportAmounts();
-            HashMap<Edge, int[]> graphEdgeRoutes = data.getGraphEdgeRoutes();
+            HashMap<Edge, Route> graphEdgeRoutes = data.getGraphEdgeRoutes();
 
             // Make Sources.
             try (BufferedWriter bw = new BufferedWriter(new FileWriter(new File(newDir, "Sources.txt")))) {
@@ -1379,8 +1448,7 @@ public class DataInOut {
                 bw.write("ID,CapID,CapValue,Flow,Cost,LengKM,LengROW,LengCONS,Variable\n");
                 for (Edge e : soln.getOpenedEdges()) {
                     bw.write("0,0,0," + edgeTransportAmounts.get(e) + ",0,0,0,0,0\n");
-                    int[] route = graphEdgeRoutes.get(e);
-                    for (int vertex : route) {
+                    for (int vertex : graphEdgeRoutes.get(e)) {
                         bw.write(round(data.cellToLatLon(vertex)[1], 5) + "," + round(data.cellToLatLon(vertex)[0], 5) + "\n");
                     }
                     bw.write("END\n");
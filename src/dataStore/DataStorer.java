@@ -4,7 +4,10 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.PrimitiveIterator;
 import java.util.Set;
+import solver.RouteCache;
+import solver.RoutingHierarchy;
 import solver.Solver;
 
 /**
@@ -33,15 +36,32 @@ public class DataStorer {
     private int[] sourceSinkCellLocations;  // Cell number for each source and sink node
 
     // Raw network information
-    private double[][] rightOfWayCosts;
-    private double[][] constructionCosts;
-    private double[][] routingCosts;
-    private double[][] modifiedRoutingCosts;
+    private CostSurface rightOfWayCosts;
+    private CostSurface constructionCosts;
+    private CostSurface routingCosts;
+    private OverlayCostSurface modifiedRoutingCosts;    // Path sharing penalties over routingCosts, kept in double precision
+    private String costPrecision = "d";     // Cost surface storage: "d" double, "f" float, "q" 16 bit quantized
+    private int costTileBuffer = -1;    // Cells around the source/sink bounding box loaded up front when tiling, -1 loads the whole surface
+    private int routingRoundSize = 1;   // Candidate graph searches run concurrently against the same path sharing penalties, 1 routes sequentially
+    private String allPairsSearchMode = "d";    // Search mode for all pairs shortest paths, "p" for parallel delta-stepping
+    private String delaunaySearchMode = "ba";   // Search mode for Delaunay candidate graph routes, "c" for the routing hierarchy
+    private double corridorWidth = 0;   // Search corridor width as a factor of pair distance, 0 searches the whole surface
+    private int routingPyramidLevels = 3;   // Downsampled routing levels (2x, 4x, 8x...) for coarse-to-fine pair routing
+    private boolean pyramidGapReport = false;   // Report pyramid route costs against exact routes after candidate graph generation
+    private RoutingPyramid routingPyramid;  // Built on first use
+    private RoutingComponents routingComponents;    // Labelled on first use
+    private OverlayCostSurface routingCostEdits;    // Edited routing costs over the loaded ones, null until the first edit
+    private HashMap<Long, Double> editedCosts = new HashMap<>();    // Routing cost before edits since the candidate graph was built, by cell * 8 + neighborNum
+    private int routingCostsVersion;    // Counts changes to the routing costs
+    private CostSurface fingerprintedCosts;     // Loaded routing costs, under any edits, that loadedCostsFingerprint identifies
+    private long loadedCostsFingerprint;
+    private int routeCacheSize = (int) RouteCache.DEFAULT_CAPACITY;     // Route cells held in memory by the shared route cache, 0 to route without it
+    private boolean routeCacheOnDisk = false;   // Keep cached routes under the dataset for later sessions
 
     // Candidate network graph information
     private int[] graphVertices;    // Set of all vertices in graph (source/sink/junction)
     private HashMap<Edge, Double> graphEdgeCosts;   // Cost for each edge between vertices
-    private HashMap<Edge, int[]> graphEdgeRoutes;   // Cell-to-cell route for each edge between vertices
+    private HashMap<Edge, Route> graphEdgeRoutes;   // Cell-to-cell route for each edge between vertices
     private HashMap<Edge, Double> graphEdgeRightOfWayCosts;   // Cost for each edge between vertices
     private HashMap<Edge, Double> graphEdgeConstructionCosts;   // Cost for each edge between vertices
     private HashSet<Edge> delaunayPairs;
@@ -74,7 +94,7 @@ public class DataStorer {
         return edges;
     }
 
-    public HashSet<int[]> getGraphEdges() {
+    public HashSet<Route> getGraphEdges() {
         if (graphEdgeRoutes == null) {
             generateCandidateGraph();
         }
@@ -88,22 +108,25 @@ public class DataStorer {
 
     public void generateCandidateGraph() {
         loadNetworkCosts();
+        modifiedRoutingCosts.reset();
+        editedCosts.clear();
         String[] outliers = outliers();
         if (outliers.length == 0) {
             generateDelaunayPairs();
 
             Object[] graphComponents = solver.generateDelaunayCandidateGraph();
             if (graphComponents != null) {
-                graphVertices = (int[]) graphComponents[0];
-                graphEdgeCosts = (HashMap<Edge, Double>) graphComponents[1];
-                graphEdgeRoutes = (HashMap<Edge, int[]>) graphComponents[2];
-
-                // Make right of way and construction costs
-                Object[] costComponents = solver.makeComponentCosts();
-                graphEdgeRightOfWayCosts = (HashMap<Edge, Double>) costComponents[0];
-                graphEdgeConstructionCosts = (HashMap<Edge, Double>) costComponents[1];
+                setGraphComponents(graphComponents);
+                makeComponentCosts();
 
                 DataInOut.saveCandidateGraph();
+
+                if (!costPrecision.equals("d")) {
+                    System.out.println(costPrecisionReport());
+                }
+                if (pyramidGapReport) {
+                    System.out.println(solver.pyramidGapReport());
+                }
             }
         } else {
             String text = "";
@@ -114,17 +137,112 @@ public class DataStorer {
         }
     }
 
+    // Scale the routing cost of every edge into or out of cells by factor, Double.POSITIVE_INFINITY to exclude the cells.
+    // Edits accumulate until the candidate graph is generated or repaired. Negative and NaN factors are rejected.
+    public void editRoutingCosts(int[] cells, double factor) {
+        if (!(factor >= 0)) {
+            throw new IllegalArgumentException("Routing cost factor " + factor + " is not a nonnegative number");
+        }
+        loadNetworkCosts();
+        if (routingCostEdits == null) {
+            routingCostEdits = new OverlayCostSurface(routingCosts);
+            RoutingComponents components = routingComponents;
+            setRoutingCosts(routingCostEdits);
+            routingComponents = components;     // Still those of the unedited costs
+        }
+        int[] neighborOffsets = {-width - 1, -width, -width + 1, 1, width + 1, width, width - 1, -1};
+        HashSet<Long> scaled = new HashSet<>();   // Edges between two edited cells are scaled once
+        for (int cell : cells) {
+            for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                int neighbor = cell + neighborOffsets[neighborNum];
+                if (neighbor >= 1 && neighbor <= width * height) {
+                    scaleRoutingCost(cell, neighborNum, factor, scaled);
+                    scaleRoutingCost(neighbor, (neighborNum + 4) % 8, factor, scaled);
+                }
+            }
+        }
+        routingPyramid = null;
+        routingCostsVersion++;
+    }
+
+    private void scaleRoutingCost(int cell, int neighborNum, double factor, HashSet<Long> scaled) {
+        long key = (long) cell * 8 + neighborNum;
+        double cost = routingCostEdits.getCost(cell, neighborNum);
+        if (cost == Double.MAX_VALUE || !scaled.add(key)) {
+            return;
+        }
+        if (!editedCosts.containsKey(key)) {
+            editedCosts.put(key, cost);
+        }
+        double scaledCost = Math.min(cost * factor, Double.MAX_VALUE);
+        routingCostEdits.setCost(cell, neighborNum, scaledCost);
+        if (scaledCost == Double.MAX_VALUE) {
+            routingComponents = null;   // Removed edge may split a component. Scaled edges leave them as they are.
+        }
+    }
+
+    // Re-route the candidate graph pairs affected by routing cost edits made since it was built.
+    public void repairCandidateGraph() {
+        if (!solver.hasDelaunayPairRoutes()) {
+            generateCandidateGraph();
+            return;
+        }
+        modifiedRoutingCosts.reset();
+        setGraphComponents(solver.repairDelaunayCandidateGraph(editedCosts));
+        editedCosts.clear();
+        makeComponentCosts();
+        DataInOut.saveCandidateGraph();
+    }
+
+    // Vertices, edge costs and edge routes of a candidate graph built by the solver.
+    private void setGraphComponents(Object[] graphComponents) {
+        graphVertices = (int[]) graphComponents[0];
+        graphEdgeCosts = (HashMap<Edge, Double>) graphComponents[1];
+        graphEdgeRoutes = (HashMap<Edge, Route>) graphComponents[2];
+    }
+
+    // Make right of way and construction costs
+    private void makeComponentCosts() {
+        Object[] costComponents = solver.makeComponentCosts();
+        graphEdgeRightOfWayCosts = (HashMap<Edge, Double>) costComponents[0];
+        graphEdgeConstructionCosts = (HashMap<Edge, Double>) costComponents[1];
+    }
+
+    // Drop all routing cost edits, returning to the loaded costs. The candidate graph can then be repaired.
+    public void resetRoutingCostEdits() {
+        if (routingCostEdits != null) {
+            for (long key : routingCostEdits.getChangedEdges()) {
+                if (!editedCosts.containsKey(key)) {
+                    editedCosts.put(key, routingCostEdits.getCost((int) (key / 8), (int) (key % 8)));
+                }
+            }
+            setRoutingCosts(routingCostEdits.getBase());
+            routingCostEdits = null;
+            routingCostsVersion++;
+        }
+    }
+
+    // Cells with routing cost edits since the candidate graph was built.
+    public HashSet<Integer> getEditedCells() {
+        HashSet<Integer> cells = new HashSet<>();
+        for (long key : editedCosts.keySet()) {
+            cells.add((int) (key / 8));
+        }
+        return cells;
+    }
+
     public String[] outliers() {
         ArrayList<String> outliers = new ArrayList<>();
         for (Source src : sources) {
             int cell = src.getCellNum();
 
-            if (cell >= constructionCosts.length) {
+            if (cell > width * height) {
                 outliers.add("SRC-" + src.getLabel());
+                continue;
             }
             boolean connected = false;
-            for (double cost : constructionCosts[cell]) {
-                if (cost < Double.MAX_VALUE) {
+            for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                if (constructionCosts.getCost(cell, neighborNum) < Double.MAX_VALUE) {
                     connected = true;
                 }
             }
@@ -135,12 +253,13 @@ public class DataStorer {
         for (Sink snk : sinks) {
             int cell = snk.getCellNum();
 
-            if (cell >= constructionCosts.length) {
+            if (cell > width * height) {
                 outliers.add("SNK-" + snk.getLabel());
+                continue;
             }
             boolean connected = false;
-            for (double cost : constructionCosts[cell]) {
-                if (cost < Double.MAX_VALUE) {
+            for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                if (constructionCosts.getCost(cell, neighborNum) < Double.MAX_VALUE) {
                     connected = true;
                 }
             }
@@ -148,6 +267,30 @@ public class DataStorer {
                 outliers.add("SNK-" + snk.getLabel());
             }
         }
+
+        // Sources and sinks cut off from the routing component holding the most of them.
+        RoutingComponents components = outliers.isEmpty() ? getRoutingComponents() : null;
+        if (components != null) {
+            HashMap<Integer, Integer> componentSizes = new HashMap<>();
+            int mainComponent = -1;
+            for (int cell : getSourceSinkCells()) {
+                int component = components.getComponent(cell);
+                componentSizes.put(component, componentSizes.getOrDefault(component, 0) + 1);
+                if (mainComponent < 0 || componentSizes.get(component) > componentSizes.get(mainComponent)) {
+                    mainComponent = component;
+                }
+            }
+            for (Source src : sources) {
+                if (components.getComponent(src.getCellNum()) != mainComponent) {
+                    outliers.add("SRC-" + src.getLabel());
+                }
+            }
+            for (Sink snk : sinks) {
+                if (components.getComponent(snk.getCellNum()) != mainComponent) {
+                    outliers.add("SNK-" + snk.getLabel());
+                }
+            }
+        }
         return outliers.toArray(new String[outliers.size()]);
     }
 
@@ -157,13 +300,89 @@ public class DataStorer {
 
             // Make right of way and construction costs
             if (graphEdgeRoutes != null) {
-                Object[] costComponents = solver.makeComponentCosts();
-                graphEdgeRightOfWayCosts = (HashMap<Edge, Double>) costComponents[0];
-                graphEdgeConstructionCosts = (HashMap<Edge, Double>) costComponents[1];
+                makeComponentCosts();
             }
         }
     }
 
+    // Compare candidate network route costs on the reduced precision cost surface to full precision costs.
+    public String costPrecisionReport() {
+        CostSurfaceFile fullPrecision = DataInOut.loadFullPrecisionCosts();
+        if (fullPrecision == null || graphEdgeRoutes == null) {
+            return "Cost precision report: full precision costs or candidate network not available.";
+        }
+        CostSurface fullConstruction = fullPrecision.getLayer(CostSurfaceFile.CONSTRUCTION);
+        CostSurface fullRightOfWay = fullPrecision.getLayer(CostSurfaceFile.RIGHT_OF_WAY);
+        CostSurface fullRouting = fullPrecision.getLayer(CostSurfaceFile.ROUTING);
+        if (fullRouting == null) {
+            fullRouting = new SumCostSurface(fullConstruction, fullRightOfWay);
+        }
+
+        double maxRoutingDrift = 0;
+        double totalRoutingDrift = 0;
+        double maxCapitalDrift = 0;
+        double totalCapitalDrift = 0;
+        for (Route route : graphEdgeRoutes.values()) {
+            double routing = 0;
+            double exactRouting = 0;
+            double capital = 0;
+            double exactCapital = 0;
+            PrimitiveIterator.OfInt cells = route.iterator();
+            for (int i = 0; i < route.getNumSteps(); i++) {
+                int cell = cells.nextInt();
+                int neighborNum = route.getStep(i);
+                routing += routingCosts.getCost(cell, neighborNum);
+                exactRouting += fullRouting.getCost(cell, neighborNum);
+                capital += constructionCosts.getCost(cell, neighborNum);
+                exactCapital += fullConstruction.getCost(cell, neighborNum);
+                if (rightOfWayCosts != null) {
+                    capital += rightOfWayCosts.getCost(cell, neighborNum);
+                    exactCapital += fullRightOfWay.getCost(cell, neighborNum);
+                }
+            }
+            double routingDrift = exactRouting > 0 ? Math.abs(routing - exactRouting) / exactRouting : 0;
+            double capitalDrift = exactCapital > 0 ? Math.abs(capital - exactCapital) / exactCapital : 0;
+            maxRoutingDrift = Math.max(maxRoutingDrift, routingDrift);
+            totalRoutingDrift += routingDrift;
+            maxCapitalDrift = Math.max(maxCapitalDrift, capitalDrift);
+            totalCapitalDrift += capitalDrift;
+        }
+
+        int numRoutes = Math.max(graphEdgeRoutes.size(), 1);
+        return "Cost precision report (" + costPrecision + ", " + graphEdgeRoutes.size() + " routes):\n"
+                + "Routing cost drift: max " + maxRoutingDrift * 100 + "%, mean " + totalRoutingDrift / numRoutes * 100 + "%\n"
+                + "Construction + right of way cost drift: max " + maxCapitalDrift * 100 + "%, mean " + totalCapitalDrift / numRoutes * 100 + "%";
+    }
+
+    // Load the cost tiles within costTileBuffer cells of the source/sink bounding box. Other tiles load when first used.
+    public void loadCostTiles() {
+        int minX = width;
+        int minY = height;
+        int maxX = 1;
+        int maxY = 1;
+        for (int cell : getSourceSinkCells()) {
+            double[] xy = cellLocationToRawXY(cell);
+            minX = Math.min(minX, (int) xy[0]);
+            minY = Math.min(minY, (int) xy[1]);
+            maxX = Math.max(maxX, (int) xy[0]);
+            maxY = Math.max(maxY, (int) xy[1]);
+        }
+        minX -= costTileBuffer;
+        minY -= costTileBuffer;
+        maxX += costTileBuffer;
+        maxY += costTileBuffer;
+
+        for (CostSurface layer : new CostSurface[]{constructionCosts, rightOfWayCosts, routingCosts}) {
+            if (layer instanceof TiledCostSurface) {
+                ((TiledCostSurface) layer).loadTiles(minX, minY, maxX, maxY);
+            }
+        }
+        if (routingCosts instanceof TiledCostSurface) {
+            TiledCostSurface tiledRoutingCosts = (TiledCostSurface) routingCosts;
+            System.out.println("Loaded " + tiledRoutingCosts.getNumLoadedTiles() + " of " + tiledRoutingCosts.getNumTiles() + " cost tiles.");
+        }
+    }
+
     public Set<Integer> getJunctions() {
         if (graphVertices == null) {
             generateCandidateGraph();
@@ -211,7 +430,7 @@ public class DataStorer {
         return graphEdgeConstructionCosts;
     }
 
-    public HashMap<Edge, int[]> getGraphEdgeRoutes() {
+    public HashMap<Edge, Route> getGraphEdgeRoutes() {
         if (graphEdgeRoutes == null) {
             generateCandidateGraph();
         }
@@ -231,12 +450,12 @@ public class DataStorer {
             return 0;
         } else if (getNeighborNum(cell1, cell2) >= 0 && getNeighborNum(cell1, cell2) < 8) {
             if (type.equals("r")) {
-                return routingCosts[cell1][getNeighborNum(cell1, cell2)];
+                return routingCosts.getCost(cell1, getNeighborNum(cell1, cell2));
             } else if (type.equals("c")) {
                 if (rightOfWayCosts != null) {
-                    return constructionCosts[cell1][getNeighborNum(cell1, cell2)] + rightOfWayCosts[cell1][getNeighborNum(cell1, cell2)];
+                    return constructionCosts.getCost(cell1, getNeighborNum(cell1, cell2)) + rightOfWayCosts.getCost(cell1, getNeighborNum(cell1, cell2));
                 } else {
-                    return constructionCosts[cell1][getNeighborNum(cell1, cell2)];
+                    return constructionCosts.getCost(cell1, getNeighborNum(cell1, cell2));
                 }
             }
         }
@@ -252,7 +471,7 @@ public class DataStorer {
         if (cell1 == cell2) {
             return 0;
         } else if (getNeighborNum(cell1, cell2) >= 0 && getNeighborNum(cell1, cell2) < 8) {
-            return rightOfWayCosts[cell1][getNeighborNum(cell1, cell2)];
+            return rightOfWayCosts.getCost(cell1, getNeighborNum(cell1, cell2));
         }
         return Double.MAX_VALUE;
     }
@@ -261,7 +480,7 @@ public class DataStorer {
         if (cell1 == cell2) {
             return 0;
         } else if (getNeighborNum(cell1, cell2) >= 0 && getNeighborNum(cell1, cell2) < 8) {
-            return constructionCosts[cell1][getNeighborNum(cell1, cell2)];
+            return constructionCosts.getCost(cell1, getNeighborNum(cell1, cell2));
         }
         return Double.MAX_VALUE;
     }
@@ -355,7 +574,7 @@ public class DataStorer {
         if (cell1 == cell2) {
             return 0;
         } else if (getNeighborNum(cell1, cell2) >= 0 && getNeighborNum(cell1, cell2) < 8) {
-            return modifiedRoutingCosts[cell1][getNeighborNum(cell1, cell2)];
+            return modifiedRoutingCosts.getCost(cell1, getNeighborNum(cell1, cell2));
         }
         return Double.MAX_VALUE;
     }
@@ -364,7 +583,7 @@ public class DataStorer {
         if (cell1 == cell2) {
 
         } else if (getNeighborNum(cell1, cell2) >= 0 && getNeighborNum(cell1, cell2) < 8) {
-            modifiedRoutingCosts[cell1][getNeighborNum(cell1, cell2)] = edgeCostModification * routingCosts[cell1][getNeighborNum(cell1, cell2)];
+            modifiedRoutingCosts.setCost(cell1, getNeighborNum(cell1, cell2), edgeCostModification * routingCosts.getCost(cell1, getNeighborNum(cell1, cell2)));
         }
     }
 
@@ -442,6 +661,108 @@ public class DataStorer {
         return height;
     }
 
+    public double getLowerLeftX() {
+        return lowerLeftX;
+    }
+
+    public double getLowerLeftY() {
+        return lowerLeftY;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    public String getCostPrecision() {
+        return costPrecision;
+    }
+
+    public int getCostTileBuffer() {
+        return costTileBuffer;
+    }
+
+    public String getAllPairsSearchMode() {
+        return allPairsSearchMode;
+    }
+
+    public int getRoutingCostsVersion() {
+        return routingCostsVersion;
+    }
+
+    // Hash of the routing costs: of the loaded costs, computed once per load unless set when they were loaded, combined
+    // with the change hash of any edits.
+    public synchronized long getRoutingCostsFingerprint() {
+        CostSurface loadedCosts = routingCostEdits == null ? routingCosts : routingCostEdits.getBase();
+        if (fingerprintedCosts != loadedCosts) {
+            loadedCostsFingerprint = RoutingHierarchy.fingerprint(loadedCosts, width * height + 1);
+            fingerprintedCosts = loadedCosts;
+        }
+        return routingCostEdits == null ? loadedCostsFingerprint : loadedCostsFingerprint ^ routingCostEdits.getChangeHash();
+    }
+
+    // Fingerprint of the routing costs just loaded, when it is known without hashing every cell.
+    public synchronized void setRoutingCostsFingerprint(long fingerprint) {
+        fingerprintedCosts = routingCosts;
+        loadedCostsFingerprint = fingerprint;
+    }
+
+    // Hash of the path sharing penalties in the modified routing costs, 0 for none.
+    public long getRoutingPenaltyHash() {
+        return modifiedRoutingCosts.getChangeHash();
+    }
+
+    public int getRouteCacheSize() {
+        return routeCacheSize;
+    }
+
+    public boolean getRouteCacheOnDisk() {
+        return routeCacheOnDisk;
+    }
+
+    public int getRoutingPyramidLevels() {
+        return routingPyramidLevels;
+    }
+
+    // Downsampled routing costs, built on first use.
+    public synchronized RoutingPyramid getRoutingPyramid() {
+        if (routingPyramid == null) {
+            routingPyramid = new RoutingPyramid(routingCosts, width, height, routingPyramidLevels);
+        }
+        return routingPyramid;
+    }
+
+    // Connected components of the routing costs, labelled on first use. Null for tiled costs, as labelling them would
+    // load every tile.
+    public synchronized RoutingComponents getRoutingComponents() {
+        if (constructionCosts instanceof TiledCostSurface) {
+            return null;
+        }
+        if (routingComponents == null) {
+            routingComponents = new RoutingComponents(routingCosts, width, height);
+        }
+        return routingComponents;
+    }
+
+    public double getCorridorWidth() {
+        return corridorWidth;
+    }
+
+    public String getDelaunaySearchMode() {
+        return delaunaySearchMode;
+    }
+
+    public int getRoutingRoundSize() {
+        return routingRoundSize;
+    }
+
+    public CostSurface getRoutingCosts() {
+        return routingCosts;
+    }
+
+    public CostSurface getModifiedRoutingCosts() {
+        return modifiedRoutingCosts;
+    }
+
     public Source[] getSources() {
         return sources;
     }
@@ -526,24 +847,70 @@ public class DataStorer {
         this.cellSize = cellSize;
     }
 
-    public void setRightOfWayCosts(double[][] rightOfWayCosts) {
+    // Must be set before network costs are loaded.
+    public void setCostPrecision(String costPrecision) {
+        this.costPrecision = costPrecision;
+    }
+
+    // Must be set before network costs are loaded. Tiles are read from the binary cost surface file.
+    public void setCostTileBuffer(int costTileBuffer) {
+        this.costTileBuffer = costTileBuffer;
+    }
+
+    // Results depend on the round size but not on the number of threads.
+    public void setRoutingRoundSize(int routingRoundSize) {
+        this.routingRoundSize = routingRoundSize;
+    }
+
+    public void setAllPairsSearchMode(String allPairsSearchMode) {
+        this.allPairsSearchMode = allPairsSearchMode;
+    }
+
+    public void setRoutingPyramidLevels(int routingPyramidLevels) {
+        this.routingPyramidLevels = routingPyramidLevels;
+        routingPyramid = null;
+        routingComponents = null;
+    }
+
+    public void setPyramidGapReport(boolean pyramidGapReport) {
+        this.pyramidGapReport = pyramidGapReport;
+    }
+
+    // The route cache is shared by every dataset and scenario loaded, so its size applies to all of them.
+    public void setRouteCacheSize(int routeCacheSize) {
+        this.routeCacheSize = routeCacheSize;
+        if (routeCacheSize > 0) {
+            RouteCache.getShared().setCapacity(routeCacheSize);
+        }
+    }
+
+    public void setRouteCacheOnDisk(boolean routeCacheOnDisk) {
+        this.routeCacheOnDisk = routeCacheOnDisk;
+    }
+
+    // Searches are retried in wider corridors until their paths stay clear of the corridor edge.
+    public void setCorridorWidth(double corridorWidth) {
+        this.corridorWidth = corridorWidth;
+    }
+
+    // Routes from the routing hierarchy ("c") follow the unmodified routing costs, without path sharing.
+    public void setDelaunaySearchMode(String delaunaySearchMode) {
+        this.delaunaySearchMode = delaunaySearchMode;
+    }
+
+    public void setRightOfWayCosts(CostSurface rightOfWayCosts) {
         this.rightOfWayCosts = rightOfWayCosts;
     }
 
-    public void setConstructionCosts(double[][] constructionCosts) {
+    public void setConstructionCosts(CostSurface constructionCosts) {
         this.constructionCosts = constructionCosts;
     }
 
-    public void setRoutingCosts(double[][] routingCosts) {
+    public void setRoutingCosts(CostSurface routingCosts) {
         this.routingCosts = routingCosts;
-
-        modifiedRoutingCosts = new double[routingCosts.length][];
-        for (int i = 0; i < routingCosts.length; i++) {
-            double[] temp = routingCosts[i];
-            int tempLength = temp.length;
-            modifiedRoutingCosts[i] = new double[tempLength];
-            System.arraycopy(temp, 0, modifiedRoutingCosts[i], 0, tempLength);
-        }
+        modifiedRoutingCosts = new OverlayCostSurface(routingCosts);
+        routingPyramid = null;
+        routingComponents = null;
     }
 
     public void setSources(Source[] sources) {
@@ -574,7 +941,7 @@ public class DataStorer {
         graphEdgeRightOfWayCosts = rowCosts;
     }
 
-    public void setGraphEdgeRoutes(HashMap<Edge, int[]> edgeRoutes) {
+    public void setGraphEdgeRoutes(HashMap<Edge, Route> edgeRoutes) {
         graphEdgeRoutes = edgeRoutes;
     }
 
@@ -0,0 +1,364 @@
+package dataStore;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Line by line reader of delimited text fields. Bytes are read through a
+ * reusable buffer and int and double fields are parsed straight from it, so
+ * reading a line allocates nothing unless a field is requested as a String.
+ * Runs of delimiters separate fields and lines end at '\n', '\r' or "\r\n".
+ *
+ * @author yaw
+ */
+public class FieldReader implements Closeable {
+
+    public static final String WHITESPACE = " \t";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Doubles with at most 15 significant digits and a small exponent are exactly mantissa * or / 10^exponent.
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private final InputStream in;
+    private final ByteBuffer source;
+    private final boolean[] delimiter = new boolean[256];
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    private long bytesRead;
+    private boolean started;
+
+    // Most recently read field.
+    private byte[] field = new byte[64];
+    private int fieldLength;
+
+    public FieldReader(String path, String delimiters) throws IOException {
+        this(new File(path), delimiters);
+    }
+
+    public FieldReader(File file, String delimiters) throws IOException {
+        this(new FileInputStream(file), null, delimiters);
+    }
+
+    // Read the remaining bytes of a buffer, such as a mapped chunk of a file.
+    public FieldReader(ByteBuffer source, String delimiters) {
+        this(null, source, delimiters);
+    }
+
+    private FieldReader(InputStream in, ByteBuffer source, String delimiters) {
+        this.in = in;
+        this.source = source;
+        buffer = new byte[source == null ? BUFFER_SIZE : Math.min(BUFFER_SIZE, Math.max(source.remaining(), 1))];
+        for (char c : delimiters.toCharArray()) {
+            delimiter[c & 0xFF] = true;
+        }
+    }
+
+    // Move to the start of the next line. The first call moves to the first line. Returns false at end of input.
+    public boolean nextLine() throws IOException {
+        if (started) {
+            while (true) {
+                if (position == limit && !fill()) {
+                    return false;
+                }
+                byte b = buffer[position++];
+                if (b == '\n') {
+                    break;
+                }
+                if (b == '\r') {
+                    if ((position < limit || fill()) && buffer[position] == '\n') {
+                        position++;
+                    }
+                    break;
+                }
+            }
+        }
+        started = true;
+        return position < limit || fill();
+    }
+
+    // Whether another field remains on the current line.
+    public boolean hasField() throws IOException {
+        while (position < limit || fill()) {
+            byte b = buffer[position];
+            if (b == '\n' || b == '\r') {
+                return false;
+            }
+            if (!delimiter[b & 0xFF]) {
+                return true;
+            }
+            position++;
+        }
+        return false;
+    }
+
+    public int nextInt() throws IOException {
+        readField();
+        return parseInt(field, 0, fieldLength);
+    }
+
+    public double nextDouble() throws IOException {
+        readField();
+        return parseDouble(field, 0, fieldLength);
+    }
+
+    // Next field as a comma separated list of doubles.
+    public double[] nextDoubleArray() throws IOException {
+        readField();
+        int count = 1;
+        for (int i = 0; i < fieldLength; i++) {
+            if (field[i] == ',') {
+                count++;
+            }
+        }
+        double[] values = new double[count];
+        int start = 0;
+        count = 0;
+        for (int i = 0; i <= fieldLength; i++) {
+            if (i == fieldLength || field[i] == ',') {
+                values[count++] = parseDouble(field, start, i - start);
+                start = i + 1;
+            }
+        }
+        return values;
+    }
+
+    public String nextString() throws IOException {
+        readField();
+        return new String(field, 0, fieldLength, StandardCharsets.UTF_8);
+    }
+
+    // Whether the next field equals s. The field is consumed either way.
+    public boolean nextFieldEquals(String s) throws IOException {
+        readField();
+        if (fieldLength != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < fieldLength; i++) {
+            if (field[i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Whether the rest of the current line starts with s. Nothing is consumed.
+    public boolean lineStartsWith(String s) throws IOException {
+        if (!available(s.length())) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (buffer[position + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Whether the next field on the current line starts with a letter. Nothing is consumed.
+    public boolean nextFieldIsWord() throws IOException {
+        if (!hasField()) {
+            return false;
+        }
+        byte b = buffer[position];
+        return (b >= 'A' && b <= 'Z') || (b >= 'a' && b <= 'z');
+    }
+
+    public void skipFields(int numFields) throws IOException {
+        for (int i = 0; i < numFields; i++) {
+            readField();
+        }
+    }
+
+    // Remainder of the current line, delimiters included.
+    public String readLine() throws IOException {
+        fieldLength = 0;
+        while ((position < limit || fill()) && buffer[position] != '\n' && buffer[position] != '\r') {
+            append(buffer[position++]);
+        }
+        return new String(field, 0, fieldLength, StandardCharsets.UTF_8);
+    }
+
+    // Bytes read from the input so far.
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+        }
+    }
+
+    // Copy the next field on the current line into field.
+    private void readField() throws IOException {
+        if (!hasField()) {
+            throw new NumberFormatException("Missing field.");
+        }
+        fieldLength = 0;
+        while (position < limit || fill()) {
+            byte b = buffer[position];
+            if (b == '\n' || b == '\r' || delimiter[b & 0xFF]) {
+                break;
+            }
+            append(b);
+            position++;
+        }
+    }
+
+    private void append(byte b) {
+        if (fieldLength == field.length) {
+            byte[] larger = new byte[field.length * 2];
+            System.arraycopy(field, 0, larger, 0, fieldLength);
+            field = larger;
+        }
+        field[fieldLength++] = b;
+    }
+
+    // Make at least n bytes available from position, moving unread bytes to the front of the buffer.
+    private boolean available(int n) throws IOException {
+        if (limit - position >= n) {
+            return true;
+        }
+        if (n > buffer.length) {
+            return false;
+        }
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+        while (limit < n) {
+            int numRead;
+            if (in != null) {
+                numRead = in.read(buffer, limit, buffer.length - limit);
+            } else {
+                numRead = Math.min(source.remaining(), buffer.length - limit);
+                source.get(buffer, limit, numRead);
+            }
+            if (numRead <= 0) {
+                return false;
+            }
+            limit += numRead;
+            bytesRead += numRead;
+        }
+        return true;
+    }
+
+    private boolean fill() throws IOException {
+        int numRead;
+        if (in != null) {
+            numRead = in.read(buffer, 0, buffer.length);
+        } else {
+            numRead = Math.min(source.remaining(), buffer.length);
+            source.get(buffer, 0, numRead);
+        }
+        position = 0;
+        limit = Math.max(numRead, 0);
+        bytesRead += limit;
+        return limit > 0;
+    }
+
+    public static int parseInt(byte[] bytes, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i++] == '-';
+        }
+        if (i == end) {
+            throw numberFormatException(bytes, offset, length);
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw numberFormatException(bytes, offset, length);
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw numberFormatException(bytes, offset, length);
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw numberFormatException(bytes, offset, length);
+        }
+        return (int) value;
+    }
+
+    // Same result as Double.parseDouble. Forms without an exact fast path (long mantissas, large exponents, NaN, hex) go through it.
+    public static double parseDouble(byte[] bytes, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i++] == '-';
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean anyDigits = false;
+        for (; i < end && bytes[i] >= '0' && bytes[i] <= '9'; i++) {
+            anyDigits = true;
+            if (significantDigits < 18) {
+                mantissa = mantissa * 10 + (bytes[i] - '0');
+                if (mantissa != 0) {
+                    significantDigits++;
+                }
+            } else {
+                exponent++;
+            }
+        }
+        if (i < end && bytes[i] == '.') {
+            i++;
+            for (; i < end && bytes[i] >= '0' && bytes[i] <= '9'; i++) {
+                anyDigits = true;
+                if (significantDigits < 18) {
+                    mantissa = mantissa * 10 + (bytes[i] - '0');
+                    if (mantissa != 0) {
+                        significantDigits++;
+                    }
+                    exponent--;
+                }
+            }
+        }
+        if (anyDigits && i < end && (bytes[i] == 'e' || bytes[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+                negativeExponent = bytes[i++] == '-';
+            }
+            int explicitExponent = 0;
+            boolean anyExponentDigits = false;
+            for (; i < end && bytes[i] >= '0' && bytes[i] <= '9'; i++) {
+                anyExponentDigits = true;
+                if (explicitExponent < 100000) {
+                    explicitExponent = explicitExponent * 10 + (bytes[i] - '0');
+                }
+            }
+            if (!anyExponentDigits) {
+                anyDigits = false;
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if (!anyDigits || i != end || mantissa > MAX_EXACT_MANTISSA || exponent < -22 || exponent > 22) {
+            return Double.parseDouble(new String(bytes, offset, length, StandardCharsets.US_ASCII));
+        }
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    private static NumberFormatException numberFormatException(byte[] bytes, int offset, int length) {
+        return new NumberFormatException("For input string: \"" + new String(bytes, offset, length, StandardCharsets.US_ASCII) + "\"");
+    }
+}
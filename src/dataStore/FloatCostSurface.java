@@ -0,0 +1,38 @@
+package dataStore;
+
+/**
+ * Cost surface stored in single precision. Missing edges are stored as
+ * infinity and read back as Double.MAX_VALUE.
+ *
+ * @author yaw
+ */
+public class FloatCostSurface extends CostSurface {
+
+    private static final float IMPASSABLE = Float.POSITIVE_INFINITY;
+
+    private final float[] costs;    // Indexed by cell * 8 + neighborNum
+
+    public FloatCostSurface(CostSurface fullPrecision) {
+        costs = new float[fullPrecision.getNumCells() * 8];
+        for (int cell = 0; cell < fullPrecision.getNumCells(); cell++) {
+            for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                double cost = fullPrecision.getCost(cell, neighborNum);
+                costs[cell * 8 + neighborNum] = cost >= Float.MAX_VALUE ? IMPASSABLE : (float) cost;
+            }
+        }
+    }
+
+    @Override
+    public double getCost(int cell, int neighborNum) {
+        float cost = costs[cell * 8 + neighborNum];
+        if (cost == IMPASSABLE) {
+            return Double.MAX_VALUE;
+        }
+        return cost;
+    }
+
+    @Override
+    public int getNumCells() {
+        return costs.length / 8;
+    }
+}
@@ -0,0 +1,153 @@
+package dataStore;
+
+import java.util.Arrays;
+
+/**
+ * Writable view of a read only cost surface. Changed edge costs are kept in
+ * an open addressing hash keyed by cell * 8 + neighborNum, so memory grows
+ * with the number of changes rather than the size of the surface, and reset
+ * only touches the changed entries. A bit per cell marks cells with changed
+ * edges so reads of unchanged cells skip the hash. A running hash of the
+ * changes identifies the overlay's state for caching routes over it.
+ *
+ * @author yaw
+ */
+public class OverlayCostSurface extends WritableCostSurface {
+
+    private static final long EMPTY = -1;
+
+    private final CostSurface base;
+    private final long[] changedCells;  // Bit per cell
+    private long[] keys;
+    private double[] costs;
+    private int[] usedSlots;    // Slots in insertion order, for reset
+    private int size;
+    private long changeHash;    // XOR of a hash of every changed edge and its cost
+    private double minChangedCostPerStepLength = Double.MAX_VALUE;
+
+    public OverlayCostSurface(CostSurface base) {
+        this.base = base;
+        changedCells = new long[(base.getNumCells() + 63) >>> 6];
+        allocate(1024);
+    }
+
+    @Override
+    public double getCost(int cell, int neighborNum) {
+        if ((changedCells[cell >>> 6] & (1L << cell)) != 0) {
+            long key = (long) cell * 8 + neighborNum;
+            for (int slot = slot(key);; slot = (slot + 1) & (keys.length - 1)) {
+                if (keys[slot] == key) {
+                    return costs[slot];
+                }
+                if (keys[slot] == EMPTY) {
+                    break;
+                }
+            }
+        }
+        return base.getCost(cell, neighborNum);
+    }
+
+    @Override
+    public void setCost(int cell, int neighborNum, double cost) {
+        long key = (long) cell * 8 + neighborNum;
+        int slot = slot(key);
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        if (keys[slot] == EMPTY) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                setCost(cell, neighborNum, cost);
+                return;
+            }
+            keys[slot] = key;
+            usedSlots[size++] = slot;
+            changedCells[cell >>> 6] |= 1L << cell;
+        } else {
+            changeHash ^= changeHash(key, costs[slot]);
+        }
+        changeHash ^= changeHash(key, cost);
+        costs[slot] = cost;
+        // On every write, as an edge already changed may be lowered again
+        minChangedCostPerStepLength = Math.min(minChangedCostPerStepLength, neighborNum % 2 == 0 ? cost / DIAGONAL_LENGTH : cost);
+    }
+
+    @Override
+    public int getNumCells() {
+        return base.getNumCells();
+    }
+
+    // Drop all changes, returning to the base costs.
+    public void reset() {
+        for (int i = 0; i < size; i++) {
+            long key = keys[usedSlots[i]];
+            changedCells[(int) (key >>> 9)] = 0;
+            keys[usedSlots[i]] = EMPTY;
+        }
+        size = 0;
+        changeHash = 0;
+        minChangedCostPerStepLength = Double.MAX_VALUE;
+    }
+
+    // Base bound lowered by any changed cost below it.
+    @Override
+    public double getMinCostPerStepLength() {
+        return Math.max(Math.min(base.getMinCostPerStepLength(), minChangedCostPerStepLength), 0);
+    }
+
+    // Number of changed edges.
+    public int getNumChanges() {
+        return size;
+    }
+
+    // Keys (cell * 8 + neighborNum) of changed edges, in order of first change.
+    public long[] getChangedEdges() {
+        long[] changed = new long[size];
+        for (int i = 0; i < size; i++) {
+            changed[i] = keys[usedSlots[i]];
+        }
+        return changed;
+    }
+
+    // Hash of the changed edges and their costs, 0 with no changes. Overlays with the same changes have the same hash.
+    public long getChangeHash() {
+        return changeHash;
+    }
+
+    private static long changeHash(long key, double cost) {
+        long hash = key * 0x9E3779B97F4A7C15L ^ Double.doubleToLongBits(cost);
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    public CostSurface getBase() {
+        return base;
+    }
+
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & (keys.length - 1);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        costs = new double[capacity];
+        usedSlots = new int[capacity / 2];
+        size = 0;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        double[] oldCosts = costs;
+        int[] oldUsedSlots = usedSlots;
+        int oldSize = size;
+        long oldChangeHash = changeHash;
+        allocate(keys.length * 2);
+        for (int i = 0; i < oldSize; i++) {
+            long key = oldKeys[oldUsedSlots[i]];
+            setCost((int) (key / 8), (int) (key % 8), oldCosts[oldUsedSlots[i]]);
+        }
+        changeHash = oldChangeHash;
+    }
+}
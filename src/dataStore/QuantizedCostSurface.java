@@ -0,0 +1,71 @@
+package dataStore;
+
+/**
+ * Cost surface stored as unsigned 16 bit values, quantized linearly between
+ * the smallest and largest finite cost of the layer. Missing edges are stored
+ * as 0xFFFF and read back as Double.MAX_VALUE.
+ *
+ * @author yaw
+ */
+public class QuantizedCostSurface extends CostSurface {
+
+    private static final char IMPASSABLE = 0xFFFF;
+
+    private final char[] costs;     // Indexed by cell * 8 + neighborNum
+    private final double offset;
+    private final double scale;
+
+    public QuantizedCostSurface(CostSurface fullPrecision) {
+        int numCells = fullPrecision.getNumCells();
+
+        // Find range of finite costs.
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (int cell = 0; cell < numCells; cell++) {
+            for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                double cost = fullPrecision.getCost(cell, neighborNum);
+                if (cost < Double.MAX_VALUE) {
+                    min = Math.min(min, cost);
+                    max = Math.max(max, cost);
+                }
+            }
+        }
+        if (min > max) {
+            min = 0;
+            max = 0;
+        }
+        offset = min;
+        scale = max > min ? (max - min) / (IMPASSABLE - 1) : 1;
+
+        costs = new char[numCells * 8];
+        for (int cell = 0; cell < numCells; cell++) {
+            for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                double cost = fullPrecision.getCost(cell, neighborNum);
+                if (cost < Double.MAX_VALUE) {
+                    costs[cell * 8 + neighborNum] = (char) Math.round((cost - offset) / scale);
+                } else {
+                    costs[cell * 8 + neighborNum] = IMPASSABLE;
+                }
+            }
+        }
+    }
+
+    @Override
+    public double getCost(int cell, int neighborNum) {
+        char cost = costs[cell * 8 + neighborNum];
+        if (cost == IMPASSABLE) {
+            return Double.MAX_VALUE;
+        }
+        return offset + cost * scale;
+    }
+
+    @Override
+    public int getNumCells() {
+        return costs.length / 8;
+    }
+
+    // Largest error introduced by quantization.
+    public double getMaxError() {
+        return scale / 2;
+    }
+}
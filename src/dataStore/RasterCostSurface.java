@@ -0,0 +1,128 @@
+package dataStore;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Cost surface computed from a per-cell cost raster in ESRI ASCII grid
+ * format. The cost of stepping between neighboring cells is the mean of the
+ * two cell values times the step length (1 orthogonal, sqrt(2) diagonal).
+ * No data cells and steps off the grid are impassable.
+ *
+ * @author yaw
+ */
+public class RasterCostSurface extends CostSurface {
+
+    // Neighbor offsets, numbered from the upper left clockwise.
+    private static final int[] X_OFFSETS = {-1, 0, 1, 1, 1, 0, -1, -1};
+    private static final int[] Y_OFFSETS = {-1, -1, -1, 0, 1, 1, 1, 0};
+
+    private int width;
+    private int height;
+    private double lowerLeftX;
+    private double lowerLeftY;
+    private double cellSize;
+    private double[] cellCosts;     // Indexed by cell number, NaN for no data
+
+    private RasterCostSurface() {
+    }
+
+    // Read raster header and, unless headerOnly, the cell values.
+    public static RasterCostSurface read(File file, boolean headerOnly) throws IOException {
+        RasterCostSurface raster = new RasterCostSurface();
+        double noData = -9999;
+        boolean centerX = false;
+        boolean centerY = false;
+        try (FieldReader reader = new FieldReader(file, FieldReader.WHITESPACE + ",")) {
+            while (reader.nextLine() && reader.nextFieldIsWord()) {
+                String key = reader.nextString().toLowerCase();
+                if (key.equals("ncols")) {
+                    raster.width = reader.nextInt();
+                } else if (key.equals("nrows")) {
+                    raster.height = reader.nextInt();
+                } else if (key.equals("xllcorner") || key.equals("xllcenter")) {
+                    raster.lowerLeftX = reader.nextDouble();
+                    centerX = key.equals("xllcenter");
+                } else if (key.equals("yllcorner") || key.equals("yllcenter")) {
+                    raster.lowerLeftY = reader.nextDouble();
+                    centerY = key.equals("yllcenter");
+                } else if (key.equals("cellsize")) {
+                    raster.cellSize = reader.nextDouble();
+                } else if (key.equals("nodata_value")) {
+                    noData = reader.nextDouble();
+                }
+            }
+            if (raster.width < 1 || raster.height < 1 || raster.cellSize <= 0) {
+                throw new IOException(file + " is missing ncols, nrows or cellsize.");
+            }
+            if (centerX) {
+                raster.lowerLeftX -= raster.cellSize / 2;
+            }
+            if (centerY) {
+                raster.lowerLeftY -= raster.cellSize / 2;
+            }
+            if (headerOnly) {
+                return raster;
+            }
+
+            // Rows run top to bottom, matching cell numbering.
+            int numCells = raster.width * raster.height;
+            raster.cellCosts = new double[numCells + 1];
+            raster.cellCosts[0] = Double.NaN;
+            for (int cell = 1; cell <= numCells; cell++) {
+                while (!reader.hasField()) {
+                    if (!reader.nextLine()) {
+                        throw new IOException(file + " has fewer than " + numCells + " cells.");
+                    }
+                }
+                double cost = reader.nextDouble();
+                raster.cellCosts[cell] = cost == noData ? Double.NaN : cost;
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException(file + ": " + e.getMessage());
+        }
+        return raster;
+    }
+
+    @Override
+    public double getCost(int cell, int neighborNum) {
+        if (cell < 1 || cell >= cellCosts.length) {
+            return Double.MAX_VALUE;
+        }
+        int x = (cell - 1) % width + X_OFFSETS[neighborNum];
+        int y = (cell - 1) / width + Y_OFFSETS[neighborNum];
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return Double.MAX_VALUE;
+        }
+        double cost = cellCosts[cell] + cellCosts[y * width + x + 1];
+        if (Double.isNaN(cost)) {
+            return Double.MAX_VALUE;
+        }
+        return neighborNum % 2 == 0 ? cost / 2 * DIAGONAL_LENGTH : cost / 2;
+    }
+
+    @Override
+    public int getNumCells() {
+        return cellCosts.length;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public double getLowerLeftX() {
+        return lowerLeftX;
+    }
+
+    public double getLowerLeftY() {
+        return lowerLeftY;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+}
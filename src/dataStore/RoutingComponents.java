@@ -0,0 +1,86 @@
+package dataStore;
+
+/**
+ * Connected components of a cost surface, labelled once by union-find over
+ * its finite edges. Cells joined by an edge in either direction share a
+ * component, so cells in different components have no route between them
+ * in either direction. Cells in the same component usually, but not always,
+ * do, since one way edges can still block a route. Cells with no finite
+ * edges are left in component 0.
+ *
+ * @author yaw
+ */
+public class RoutingComponents {
+
+    private final int[] components;     // By cell
+    private final int numComponents;
+
+    public RoutingComponents(CostSurface costs, int width, int height) {
+        int numCells = width * height + 1;
+        int[] parents = new int[numCells];
+        long[] joined = new long[(numCells + 63) >>> 6];    // Bit per cell with a finite edge
+        for (int cell = 0; cell < numCells; cell++) {
+            parents[cell] = cell;
+        }
+
+        // Join each cell to its right and lower neighbors. A component's root is its lowest cell, so parents precede cells.
+        int[] dx = {1, 1, 0, -1};
+        int[] dy = {0, 1, 1, 1};
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int cell = y * width + x + 1;
+                for (int i = 0; i < 4; i++) {
+                    int nx = x + dx[i];
+                    int ny = y + dy[i];
+                    if (nx < 0 || nx >= width || ny >= height) {
+                        continue;
+                    }
+                    int neighbor = ny * width + nx + 1;
+                    int neighborNum = i + 3;
+                    if (costs.getCost(cell, neighborNum) < Double.MAX_VALUE || costs.getCost(neighbor, (neighborNum + 4) % 8) < Double.MAX_VALUE) {
+                        joined[cell >>> 6] |= 1L << cell;
+                        joined[neighbor >>> 6] |= 1L << neighbor;
+                        int cellRoot = find(parents, cell);
+                        int neighborRoot = find(parents, neighbor);
+                        parents[Math.max(cellRoot, neighborRoot)] = Math.min(cellRoot, neighborRoot);
+                    }
+                }
+            }
+        }
+
+        // Number components in order of their lowest cell, overwriting parents with labels as they are reached.
+        int count = 0;
+        parents[0] = 0;
+        for (int cell = 1; cell < numCells; cell++) {
+            if (parents[cell] == cell) {
+                parents[cell] = (joined[cell >>> 6] & (1L << cell)) != 0 ? ++count : 0;
+            } else {
+                parents[cell] = parents[parents[cell]];
+            }
+        }
+        components = parents;
+        numComponents = count;
+    }
+
+    private static int find(int[] parents, int cell) {
+        while (parents[cell] != cell) {
+            parents[cell] = parents[parents[cell]];
+            cell = parents[cell];
+        }
+        return cell;
+    }
+
+    // Component of cell, 0 if it has no finite edges.
+    public int getComponent(int cell) {
+        return components[cell];
+    }
+
+    // Whether a route between the two cells is possible.
+    public boolean connected(int cell1, int cell2) {
+        return cell1 == cell2 || (components[cell1] != 0 && components[cell1] == components[cell2]);
+    }
+
+    public int getNumComponents() {
+        return numComponents;
+    }
+}
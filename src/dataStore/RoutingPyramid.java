@@ -0,0 +1,87 @@
+package dataStore;
+
+/**
+ * Downsampled copies of the routing cost surface. Each level halves the
+ * width and height of the one below it, so level k has one cell for every
+ * 2^k by 2^k block of the full surface. A level's edge cost in a direction is
+ * twice the mean of the finite costs in that direction of the 2 by 2 cells it
+ * covers in the level below, missing if none are finite.
+ *
+ * @author yaw
+ */
+public class RoutingPyramid {
+
+    private final CostSurface[] levels;    // Level 0 is the full surface
+    private final int[] widths;
+    private final int[] heights;
+
+    public RoutingPyramid(CostSurface costs, int width, int height, int numLevels) {
+        levels = new CostSurface[numLevels + 1];
+        widths = new int[numLevels + 1];
+        heights = new int[numLevels + 1];
+        levels[0] = costs;
+        widths[0] = width;
+        heights[0] = height;
+        for (int level = 1; level <= numLevels; level++) {
+            widths[level] = (widths[level - 1] + 1) / 2;
+            heights[level] = (heights[level - 1] + 1) / 2;
+            levels[level] = downsample(levels[level - 1], widths[level - 1], heights[level - 1], widths[level], heights[level]);
+        }
+    }
+
+    private static ArrayCostSurface downsample(CostSurface fine, int fineWidth, int fineHeight, int width, int height) {
+        ArrayCostSurface coarse = new ArrayCostSurface(width * height + 1);
+        int[] dx = {-1, 0, 1, 1, 1, 0, -1, -1};
+        int[] dy = {-1, -1, -1, 0, 1, 1, 1, 0};
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                    int nx = x + dx[neighborNum];
+                    int ny = y + dy[neighborNum];
+                    if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                        continue;
+                    }
+                    double total = 0;
+                    int numFinite = 0;
+                    for (int fy = 2 * y; fy < Math.min(2 * y + 2, fineHeight); fy++) {
+                        for (int fx = 2 * x; fx < Math.min(2 * x + 2, fineWidth); fx++) {
+                            double cost = fine.getCost(fy * fineWidth + fx + 1, neighborNum);
+                            if (cost < Double.MAX_VALUE) {
+                                total += cost;
+                                numFinite++;
+                            }
+                        }
+                    }
+                    if (numFinite > 0) {
+                        coarse.setCost(y * width + x + 1, neighborNum, 2 * total / numFinite);
+                    }
+                }
+            }
+        }
+        return coarse;
+    }
+
+    // Number of downsampled levels above the full surface.
+    public int getNumLevels() {
+        return levels.length - 1;
+    }
+
+    public CostSurface getLevel(int level) {
+        return levels[level];
+    }
+
+    public int getWidth(int level) {
+        return widths[level];
+    }
+
+    public int getHeight(int level) {
+        return heights[level];
+    }
+
+    // Cell of level containing the given cell of the full surface.
+    public int getCell(int level, int fullCell) {
+        int x = ((fullCell - 1) % widths[0]) >> level;
+        int y = ((fullCell - 1) / widths[0]) >> level;
+        return y * widths[level] + x + 1;
+    }
+}
@@ -0,0 +1,106 @@
+package dataStore;
+
+import java.util.Arrays;
+
+/**
+ * Cost surface that stores costs only for passable cells (cells with at
+ * least one finite edge cost). A bit per cell marks passable cells and a
+ * running count per 64 cells ranks them, so a passable cell's costs are
+ * found with one population count. Impassable cells read as
+ * Double.MAX_VALUE in every direction. Costs can be set only for cells
+ * marked passable when the surface is made.
+ *
+ * @author yaw
+ */
+public class SparseCostSurface extends WritableCostSurface {
+
+    // Sparse storage is used when at most this fraction of cells is passable.
+    public static final double MAX_PASSABLE_FRACTION = .9;
+
+    private final int numCells;
+    private final int numPassableCells;
+    private final long[] passable;  // Bit per cell
+    private final int[] rank;   // Passable cells before each word of passable
+    private final double[] costs;   // 8 costs per passable cell, in cell order
+
+    public SparseCostSurface(CostSurface dense) {
+        numCells = dense.getNumCells();
+        passable = new long[(numCells + 63) >>> 6];
+        for (int cell = 0; cell < numCells; cell++) {
+            for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                if (dense.getCost(cell, neighborNum) < Double.MAX_VALUE) {
+                    passable[cell >>> 6] |= 1L << cell;
+                    break;
+                }
+            }
+        }
+        rank = new int[passable.length];
+        numPassableCells = rankPassableCells();
+
+        costs = new double[numPassableCells * 8];
+        int index = 0;
+        for (int cell = 0; cell < numCells; cell++) {
+            if ((passable[cell >>> 6] & (1L << cell)) != 0) {
+                for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                    costs[index++] = dense.getCost(cell, neighborNum);
+                }
+            }
+        }
+    }
+
+    // Surface with every edge of the passable cells (bit per cell) at Double.MAX_VALUE until set.
+    public SparseCostSurface(long[] passable, int numCells) {
+        this.numCells = numCells;
+        this.passable = passable;
+        rank = new int[passable.length];
+        numPassableCells = rankPassableCells();
+        costs = new double[numPassableCells * 8];
+        Arrays.fill(costs, Double.MAX_VALUE);
+    }
+
+    // Fill rank and return the number of passable cells.
+    private int rankPassableCells() {
+        int count = 0;
+        for (int i = 0; i < passable.length; i++) {
+            rank[i] = count;
+            count += Long.bitCount(passable[i]);
+        }
+        return count;
+    }
+
+    @Override
+    public double getCost(int cell, int neighborNum) {
+        long word = passable[cell >>> 6];
+        long bit = 1L << cell;
+        if ((word & bit) == 0) {
+            return Double.MAX_VALUE;
+        }
+        return costs[(rank[cell >>> 6] + Long.bitCount(word & (bit - 1))) * 8 + neighborNum];
+    }
+
+    @Override
+    public void setCost(int cell, int neighborNum, double cost) {
+        long word = passable[cell >>> 6];
+        long bit = 1L << cell;
+        if ((word & bit) == 0) {
+            throw new IllegalArgumentException("Cell " + cell + " is not passable.");
+        }
+        costs[(rank[cell >>> 6] + Long.bitCount(word & (bit - 1))) * 8 + neighborNum] = cost;
+    }
+
+    @Override
+    public int getNumCells() {
+        return numCells;
+    }
+
+    public int getNumPassableCells() {
+        return numPassableCells;
+    }
+
+    // Bytes saved compared to storing 8 doubles for every cell.
+    public long getBytesSaved() {
+        long denseBytes = (long) numCells * 8 * 8;
+        long sparseBytes = (long) costs.length * 8 + passable.length * 8L + rank.length * 4L;
+        return denseBytes - sparseBytes;
+    }
+}
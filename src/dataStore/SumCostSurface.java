@@ -0,0 +1,39 @@
+package dataStore;
+
+/**
+ * Cost surface computed as the sum of two other cost surfaces, such as
+ * routing costs derived from construction and right of way costs. Nothing
+ * is stored; each cost is added up when it is read.
+ *
+ * @author yaw
+ */
+public class SumCostSurface extends CostSurface {
+
+    private final CostSurface first;
+    private final CostSurface second;   // May be null
+
+    public SumCostSurface(CostSurface first, CostSurface second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    @Override
+    public double getCost(int cell, int neighborNum) {
+        double cost = first.getCost(cell, neighborNum);
+        if (second != null) {
+            cost += second.getCost(cell, neighborNum);
+        }
+        return cost;
+    }
+
+    @Override
+    public int getNumCells() {
+        return first.getNumCells();
+    }
+
+    // The sum of the two minimums is a lower bound without scanning the sum.
+    @Override
+    public double getMinCostPerStepLength() {
+        return first.getMinCostPerStepLength() + (second != null ? second.getMinCostPerStepLength() : 0);
+    }
+}
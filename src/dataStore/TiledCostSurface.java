@@ -0,0 +1,124 @@
+package dataStore;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cost surface split into square tiles that are copied into memory from a
+ * backing cost surface (normally the mapped binary cost file) the first time
+ * they are needed.
+ *
+ * @author yaw
+ */
+public class TiledCostSurface extends WritableCostSurface {
+
+    public static final int TILE_SIZE = 128;   // Cells per tile side
+
+    private final CostSurface source;
+    private final int width;
+    private final int height;
+    private final int tilesAcross;
+    private final AtomicReferenceArray<double[]> tiles;
+
+    public TiledCostSurface(CostSurface source, int width, int height) {
+        this.source = source;
+        this.width = width;
+        this.height = height;
+        tilesAcross = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int tilesDown = (height + TILE_SIZE - 1) / TILE_SIZE;
+        tiles = new AtomicReferenceArray<>(tilesAcross * tilesDown);
+    }
+
+    @Override
+    public double getCost(int cell, int neighborNum) {
+        if (cell < 1) {
+            return Double.MAX_VALUE;
+        }
+        return getTile(cell)[tileOffset(cell) + neighborNum];
+    }
+
+    @Override
+    public void setCost(int cell, int neighborNum, double cost) {
+        if (cell > 0) {
+            getTile(cell)[tileOffset(cell) + neighborNum] = cost;
+        }
+    }
+
+    @Override
+    public int getNumCells() {
+        return width * height + 1;
+    }
+
+    // From the source, which for the mapped binary cost surface reads it from the file header rather than every tile.
+    @Override
+    public double getMinCostPerStepLength() {
+        return source.getMinCostPerStepLength();
+    }
+
+    // Load all tiles overlapping the given column/row range (numbering starts at 1).
+    public void loadTiles(int minX, int minY, int maxX, int maxY) {
+        minX = Math.max(minX, 1);
+        minY = Math.max(minY, 1);
+        maxX = Math.min(maxX, width);
+        maxY = Math.min(maxY, height);
+        for (int tileY = (minY - 1) / TILE_SIZE; tileY <= (maxY - 1) / TILE_SIZE; tileY++) {
+            for (int tileX = (minX - 1) / TILE_SIZE; tileX <= (maxX - 1) / TILE_SIZE; tileX++) {
+                loadTile(tileY * tilesAcross + tileX);
+            }
+        }
+    }
+
+    public int getNumLoadedTiles() {
+        int numLoaded = 0;
+        for (int i = 0; i < tiles.length(); i++) {
+            if (tiles.get(i) != null) {
+                numLoaded++;
+            }
+        }
+        return numLoaded;
+    }
+
+    public int getNumTiles() {
+        return tiles.length();
+    }
+
+    private double[] getTile(int cell) {
+        int y = (cell - 1) / width;
+        int x = (cell - 1) % width;
+        int tileNum = (y / TILE_SIZE) * tilesAcross + x / TILE_SIZE;
+        double[] tile = tiles.get(tileNum);
+        if (tile == null) {
+            tile = loadTile(tileNum);
+        }
+        return tile;
+    }
+
+    private int tileOffset(int cell) {
+        int y = (cell - 1) / width;
+        int x = (cell - 1) % width;
+        return ((y % TILE_SIZE) * TILE_SIZE + x % TILE_SIZE) * 8;
+    }
+
+    private synchronized double[] loadTile(int tileNum) {
+        double[] tile = tiles.get(tileNum);
+        if (tile != null) {
+            return tile;
+        }
+
+        tile = new double[TILE_SIZE * TILE_SIZE * 8];
+        Arrays.fill(tile, Double.MAX_VALUE);
+        int firstX = (tileNum % tilesAcross) * TILE_SIZE + 1;
+        int firstY = (tileNum / tilesAcross) * TILE_SIZE + 1;
+        for (int y = firstY; y < Math.min(firstY + TILE_SIZE, height + 1); y++) {
+            for (int x = firstX; x < Math.min(firstX + TILE_SIZE, width + 1); x++) {
+                int cell = (y - 1) * width + x;
+                int offset = ((y - firstY) * TILE_SIZE + x - firstX) * 8;
+                for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                    tile[offset + neighborNum] = source.getCost(cell, neighborNum);
+                }
+            }
+        }
+        tiles.set(tileNum, tile);
+        return tile;
+    }
+}
@@ -0,0 +1,11 @@
+package dataStore;
+
+/**
+ * Cost surface whose edge costs can be changed after loading.
+ *
+ * @author yaw
+ */
+public abstract class WritableCostSurface extends CostSurface {
+
+    public abstract void setCost(int cell, int neighborNum, double cost);
+}
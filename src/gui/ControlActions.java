@@ -8,6 +8,7 @@ import com.bbn.openmap.omGraphics.OMGraphic;
 import dataStore.DataInOut;
 import dataStore.DataStorer;
 import dataStore.Edge;
+import dataStore.Route;
 import dataStore.Sink;
 import dataStore.Solution;
 import dataStore.Source;
@@ -30,6 +31,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.PrimitiveIterator;
 import java.util.Random;
 import javafx.collections.FXCollections;
 import javafx.scene.control.ChoiceBox;
@@ -533,12 +535,13 @@ public class ControlActions {
 
     public void toggleCandidateNetworkDisplay(boolean show) {
         if (show) {
-            HashSet<int[]> selectedRoutes = data.getGraphEdges();
-            for (int[] route : selectedRoutes) {
-                for (int src = 0; src < route.length - 1; src++) {
-                    int dest = src + 1;
-                    double[] rawSrc = data.cellLocationToRawXY(route[src]);
-                    double[] rawDest = data.cellLocationToRawXY(route[dest]);
+            HashSet<Route> selectedRoutes = data.getGraphEdges();
+            for (Route route : selectedRoutes) {
+                PrimitiveIterator.OfInt cells = route.iterator();
+                for (int src = cells.nextInt(); cells.hasNext();) {
+                    int dest = cells.nextInt();
+                    double[] rawSrc = data.cellLocationToRawXY(src);
+                    double[] rawDest = data.cellLocationToRawXY(dest);
                     double sX = rawXtoDisplayX(rawSrc[0]);
                     double sY = rawYtoDisplayY(rawSrc[1]);
                     double dX = rawXtoDisplayX(rawDest[0]);
@@ -548,6 +551,7 @@ public class ControlActions {
                     edge.setStrokeWidth(3.0 / gui.getScale());
                     edge.setStrokeLineCap(StrokeLineCap.ROUND);
                     candidateNetworkLayer.getChildren().add(edge);
+                    src = dest;
                 }
             }
         } else {
@@ -638,14 +642,14 @@ public class ControlActions {
 
     public void displaySolution(String file, Solution soln, Label[] solutionValues) {
         solutionLayer.getChildren().clear();
-        HashMap<Edge, int[]> graphEdgeRoutes = data.getGraphEdgeRoutes();
+        HashMap<Edge, Route> graphEdgeRoutes = data.getGraphEdgeRoutes();
 
         for (Edge e : soln.getOpenedEdges()) {
-            int[] route = graphEdgeRoutes.get(e);
-            for (int src = 0; src < route.length - 1; src++) {
-                int dest = src + 1;
-                double[] rawSrc = data.cellLocationToRawXY(route[src]);
-                double[] rawDest = data.cellLocationToRawXY(route[dest]);
+            PrimitiveIterator.OfInt cells = graphEdgeRoutes.get(e).iterator();
+            for (int src = cells.nextInt(); cells.hasNext();) {
+                int dest = cells.nextInt();
+                double[] rawSrc = data.cellLocationToRawXY(src);
+                double[] rawDest = data.cellLocationToRawXY(dest);
                 double sX = rawXtoDisplayX(rawSrc[0]);
                 double sY = rawYtoDisplayY(rawSrc[1]);
                 double dX = rawXtoDisplayX(rawDest[0]);
@@ -655,6 +659,7 @@ public class ControlActions {
                 edge.setStrokeWidth(5.0 / gui.getScale());
                 edge.setStrokeLineCap(StrokeLineCap.ROUND);
                 solutionLayer.getChildren().add(edge);
+                src = dest;
             }
         }
 
@@ -756,17 +761,20 @@ public class ControlActions {
         HashSet<Integer> usedCells = new HashSet<>();
         HashSet<Integer> rowedCells = new HashSet<>();
         HashSet<int[]> rowedPairs = new HashSet<>();
-        HashMap<Edge, int[]> graphEdgeRoutes = data.getGraphEdgeRoutes();
+        HashMap<Edge, Route> graphEdgeRoutes = data.getGraphEdgeRoutes();
         ArrayList<ArrayList<Integer>> existingRowRoutes = new ArrayList<>();
         ArrayList<ArrayList<Integer>> newRowRoutes = new ArrayList<>();
         for (Edge e : soln.getOpenedEdges()) {
-            int[] route = graphEdgeRoutes.get(e);
+            Route route = graphEdgeRoutes.get(e);
             boolean existingROW = false;
             ArrayList<Integer> newRoute = new ArrayList<>();
-            for (int i = 0; i < route.length - 1; i++) {
-                if (rightOfWay[route[i]] && rightOfWay[route[i + 1]]) {
-                    rowedPairs.add(new int[]{route[i], route[i + 1]});
+            PrimitiveIterator.OfInt cells = route.iterator();
+            for (int cell = cells.nextInt(); cells.hasNext();) {
+                int next = cells.nextInt();
+                if (rightOfWay[cell] && rightOfWay[next]) {
+                    rowedPairs.add(new int[]{cell, next});
                 }
+                cell = next;
             }
             for (int cell : route) {
                 usedCells.add(cell);
@@ -904,13 +912,13 @@ public class ControlActions {
             }
         }
 
-        HashMap<Edge, int[]> graphEdgeRoutes = data.getGraphEdgeRoutes();
+        HashMap<Edge, Route> graphEdgeRoutes = data.getGraphEdgeRoutes();
         for (Edge e : edgePopularity.keySet()) {
-            int[] route = graphEdgeRoutes.get(e);
-            for (int src = 0; src < route.length - 1; src++) {
-                int dest = src + 1;
-                double[] rawSrc = data.cellLocationToRawXY(route[src]);
-                double[] rawDest = data.cellLocationToRawXY(route[dest]);
+            PrimitiveIterator.OfInt cells = graphEdgeRoutes.get(e).iterator();
+            for (int src = cells.nextInt(); cells.hasNext();) {
+                int dest = cells.nextInt();
+                double[] rawSrc = data.cellLocationToRawXY(src);
+                double[] rawDest = data.cellLocationToRawXY(dest);
                 double sX = rawXtoDisplayX(rawSrc[0]);
                 double sY = rawYtoDisplayY(rawSrc[1]);
                 double dX = rawXtoDisplayX(rawDest[0]);
@@ -920,6 +928,7 @@ public class ControlActions {
                 edge.setStrokeWidth(Math.ceil(edgePopularity.get(e) / 10.0) / gui.getScale());
                 edge.setStrokeLineCap(StrokeLineCap.ROUND);
                 solutionLayer.getChildren().add(edge);
+                src = dest;
             }
         }
 
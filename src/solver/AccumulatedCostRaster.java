@@ -0,0 +1,73 @@
+package solver;
+
+/**
+ * Least accumulated cost from the nearest of a set of sources to every cell,
+ * with the neighbor each cell's least cost path arrives from.
+ *
+ * @author yaw
+ */
+public class AccumulatedCostRaster {
+
+    public static final byte NO_PREVIOUS = -1;
+
+    private final int width;
+    private final float[] costs;    // By cell, Float.POSITIVE_INFINITY if unreachable
+    private final byte[] previous;  // Neighbor number of the previous cell on the path, NO_PREVIOUS for sources and unreachable cells
+    private final int numSweeps;
+    private final boolean searched;     // Finished by Dijkstra after sweeping was slow to converge
+
+    public AccumulatedCostRaster(int width, float[] costs, byte[] previous, int numSweeps, boolean searched) {
+        this.width = width;
+        this.costs = costs;
+        this.previous = previous;
+        this.numSweeps = numSweeps;
+        this.searched = searched;
+    }
+
+    public float[] getCosts() {
+        return costs;
+    }
+
+    public byte[] getPrevious() {
+        return previous;
+    }
+
+    public float getCost(int cell) {
+        return costs[cell];
+    }
+
+    // Cell before cell on its least cost path, -1 for sources and unreachable cells.
+    public int getPreviousCell(int cell) {
+        int neighborNum = previous[cell];
+        if (neighborNum == NO_PREVIOUS) {
+            return -1;
+        }
+        int[] neighborOffsets = {-width - 1, -width, -width + 1, 1, width + 1, width, width - 1, -1};
+        return cell + neighborOffsets[neighborNum];
+    }
+
+    // Cells from the nearest source to cell, or null if cell is unreachable.
+    public int[] pathTo(int cell) {
+        if (costs[cell] == Float.POSITIVE_INFINITY) {
+            return null;
+        }
+        int length = 1;
+        for (int node = cell; getPreviousCell(node) >= 0; node = getPreviousCell(node)) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int node = cell, i = length - 1; i >= 0; node = getPreviousCell(node), i--) {
+            path[i] = node;
+        }
+        return path;
+    }
+
+    // Sweeps over the raster until costs stopped changing, or until sweeping gave way to Dijkstra.
+    public int getNumSweeps() {
+        return numSweeps;
+    }
+
+    public boolean isSearched() {
+        return searched;
+    }
+}
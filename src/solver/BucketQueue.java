@@ -0,0 +1,150 @@
+package solver;
+
+import java.util.Arrays;
+
+/**
+ * Bucket queue (Dial's algorithm with buckets of fixed cost width) for
+ * Dijkstra searches. Cells with keys in the same bucket are polled in any
+ * order, which still settles each cell at its least cost as long as the
+ * bucket width is no more than the lowest edge cost. Buckets are kept in a
+ * ring that doubles when a key falls beyond it, up to MAX_BUCKETS. Keys
+ * beyond a full ring wait in an overflow heap and are moved into the ring as
+ * it comes within reach of them. A bit per bucket marks those holding
+ * entries, so polling skips runs of empty buckets a word at a time. Lowering
+ * a key adds another entry for the cell, and the old one is later returned
+ * as a cell the search has already settled. Only in the overflow heap is a
+ * key lowered in place.
+ *
+ * @author yaw
+ */
+public class BucketQueue implements SearchQueue {
+
+    private static final int MIN_BUCKETS = 64;
+    private static final int MAX_BUCKETS = 1 << 16;
+
+    private final IndexedHeap overflow;     // Entries at least a ring length beyond current
+    private int[][] buckets = new int[MIN_BUCKETS][];   // Allocated on first use
+    private int[] bucketSizes = new int[MIN_BUCKETS];
+    private long[] occupied = new long[MIN_BUCKETS / 64];   // Bit per bucket holding entries
+    private double width = 1;
+    private long current;   // Number of the lowest bucket that may hold entries
+    private int size;
+
+    public BucketQueue(IndexedHeap overflow) {
+        this.overflow = overflow;
+    }
+
+    // Bucket width for the next search. Must be positive and at most the lowest edge cost. The queue must be empty.
+    public void setWidth(double width) {
+        this.width = width;
+        current = 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Number of entries, counting each lowered key.
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void update(int cell, double key) {
+        long bucket = Math.max((long) (key / width), current);
+        while (bucket - current >= buckets.length && buckets.length < MAX_BUCKETS) {
+            grow();
+        }
+        if (bucket - current >= buckets.length) {
+            if (!overflow.contains(cell)) {
+                size++;     // A cell already in the overflow heap has its key lowered in place
+            }
+            overflow.update(cell, key);
+        } else {
+            add(cell, bucket);
+            size++;
+        }
+    }
+
+    // Lower bound of the current bucket.
+    @Override
+    public double peekKey() {
+        advance();
+        return current * width;
+    }
+
+    @Override
+    public int poll() {
+        advance();
+        int i = (int) (current & (buckets.length - 1));
+        size--;
+        if (--bucketSizes[i] == 0) {
+            occupied[i >>> 6] &= ~(1L << i);
+        }
+        return buckets[i][bucketSizes[i]];
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(bucketSizes, 0);
+        Arrays.fill(occupied, 0);
+        overflow.clear();
+        size = 0;
+        current = 0;
+    }
+
+    private void add(int cell, long bucket) {
+        int i = (int) (bucket & (buckets.length - 1));
+        if (buckets[i] == null) {
+            buckets[i] = new int[16];
+        } else if (bucketSizes[i] == buckets[i].length) {
+            buckets[i] = Arrays.copyOf(buckets[i], bucketSizes[i] * 2);
+        }
+        buckets[i][bucketSizes[i]++] = cell;
+        occupied[i >>> 6] |= 1L << i;
+    }
+
+    // Move current to the lowest non-empty bucket, then move overflow entries now within a ring length of it into the
+    // ring. Overflow entries are always beyond the ring, so none is lower than the bucket found.
+    private void advance() {
+        if (size == overflow.size()) {
+            current = Math.max(current, (long) (overflow.peekKey() / width));
+        } else {
+            int mask = buckets.length - 1;
+            while (true) {
+                int i = (int) (current & mask);
+                long word = occupied[i >>> 6] & (-1L << i);
+                if (word != 0) {
+                    current += Long.numberOfTrailingZeros(word) - (i & 63);
+                    break;
+                }
+                current += 64 - (i & 63);
+            }
+        }
+        while (!overflow.isEmpty() && Math.max((long) (overflow.peekKey() / width), current) - current < buckets.length) {
+            double key = overflow.peekKey();
+            add(overflow.poll(), Math.max((long) (key / width), current));
+        }
+    }
+
+    // Double the ring, placing each bucket by its number.
+    private void grow() {
+        int[][] oldBuckets = buckets;
+        int[] oldSizes = bucketSizes;
+        int mask = oldBuckets.length - 1;
+        buckets = new int[oldBuckets.length * 2][];
+        bucketSizes = new int[buckets.length];
+        occupied = new long[buckets.length / 64];
+        for (int j = 0; j < oldBuckets.length; j++) {
+            long bucket = current + ((j - current) & mask);
+            int i = (int) (bucket & (buckets.length - 1));
+            buckets[i] = oldBuckets[j];
+            bucketSizes[i] = oldSizes[j];
+            if (bucketSizes[i] > 0) {
+                occupied[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+}
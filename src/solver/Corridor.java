@@ -0,0 +1,68 @@
+package solver;
+
+/**
+ * Cells a pair search may visit: the union of ellipses with foci at the
+ * source and each destination. An ellipse is widthFactor times its pair's
+ * distance across the middle, plus a margin of a few cells so that close
+ * pairs still have room to route around obstacles.
+ *
+ * @author yaw
+ */
+public class Corridor {
+
+    private static final double MARGIN = 4;     // Cells added around every ellipse
+
+    private final int width;
+    private final int height;
+    private final double srcX;
+    private final double srcY;
+    private final double[] destX;
+    private final double[] destY;
+    private final double[] maxDistance;    // Greatest distance sum, to src plus to the destination, inside each ellipse
+
+    public Corridor(int src, int[] destinations, int width, int height, double widthFactor) {
+        this.width = width;
+        this.height = height;
+        srcX = (src - 1) % width;
+        srcY = (src - 1) / width;
+        destX = new double[destinations.length];
+        destY = new double[destinations.length];
+        maxDistance = new double[destinations.length];
+        for (int i = 0; i < destinations.length; i++) {
+            destX[i] = (destinations[i] - 1) % width;
+            destY[i] = (destinations[i] - 1) / width;
+            double pairDistance = Math.hypot(destX[i] - srcX, destY[i] - srcY);
+            maxDistance[i] = pairDistance * Math.sqrt(1 + widthFactor * widthFactor) + 2 * MARGIN;
+        }
+    }
+
+    public boolean contains(int cell) {
+        double x = (cell - 1) % width;
+        double y = (cell - 1) / width;
+        double srcDistance = Math.hypot(x - srcX, y - srcY);
+        for (int i = 0; i < maxDistance.length; i++) {
+            if (srcDistance + Math.hypot(x - destX[i], y - destY[i]) <= maxDistance[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Whether any cell of path has a neighbor on the surface outside the corridor.
+    public boolean touches(int[] path) {
+        for (int cell : path) {
+            int x = (cell - 1) % width;
+            int y = (cell - 1) / width;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int nx = x + dx;
+                    int ny = y + dy;
+                    if (nx >= 0 && nx < width && ny >= 0 && ny < height && !contains(ny * width + nx + 1)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
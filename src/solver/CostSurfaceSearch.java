@@ -0,0 +1,516 @@
+package solver;
+
+import dataStore.CostSurface;
+import dataStore.DataInOut;
+import dataStore.DataStorer;
+import dataStore.RoutingComponents;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Least cost path search over a cost surface. Each thread reuses its own
+ * workspace, so a search only touches the cells it reaches. Searches run as
+ * Dijkstra ("d") or A* ("a") guided by the octile distance to the nearest
+ * destination times the lowest cost per unit step length of the surface.
+ * Single destination searches can also run from both ends at once, as
+ * bidirectional Dijkstra ("b") or bidirectional A* ("ba") with potentials
+ * averaged between the two ends. With several destinations these modes run
+ * as Dijkstra and A* respectively. Cells are queued in a binary heap ("h")
+ * or, for searches without a heuristic, a bucket queue ("b"), which is used
+ * by default for quantized surfaces. Searches that cover most of the surface
+ * can run as parallel delta-stepping ("p"). Searches of the routing costs
+ * can instead query a contraction hierarchy ("c"), one query per destination,
+ * which answers for the unmodified routing costs and so ignores path sharing
+ * penalties. Pair routes can also be refined from a coarse level of the
+ * routing pyramid ("m"), which is near optimal rather than exact. With a
+ * corridor width set, Dijkstra, A* and bidirectional
+ * searches only visit cells in a corridor around the source and
+ * destinations, widening it and searching again when a path is missing or
+ * runs along its edge. Destinations outside the source's connected component
+ * of the routing costs are reported unreachable without a search. Routes
+ * over the routing costs, with or without path sharing penalties, are kept
+ * in the shared route cache and looked up there before searching.
+ *
+ * @author yaw
+ */
+public class CostSurfaceSearch {
+
+    private static final double DELTA_STEPS = 8;    // Default delta-stepping bucket width in lowest cost steps
+    private static final double MAX_CORRIDOR_WIDTH = 16;    // Widest corridor, as a factor of pair distance, before searching without one
+
+    private final DataStorer data;
+    private final ThreadLocal<SearchWorkspace> workspaces = new ThreadLocal<>();
+    private final ThreadLocal<SearchWorkspace> reverseWorkspaces = new ThreadLocal<>();
+    private String queueType;   // null picks by cost precision
+    private final ThreadLocal<DeltaStepping> deltaSteppings = new ThreadLocal<>();
+    private double delta;   // Delta-stepping bucket width, 0 picks from the surface
+    private RoutingHierarchy hierarchy; // Loaded on first use
+    private int hierarchyVersion;   // Routing costs version the hierarchy was loaded for
+    private final ThreadLocal<PyramidSearch> pyramidSearches = new ThreadLocal<>();
+
+    // Totals over all searches, for reporting.
+    private final LongAdder numSearches = new LongAdder();
+    private final LongAdder numCellsSettled = new LongAdder();
+    private final LongAdder numCorridorRetries = new LongAdder();
+    private final LongAdder numCachedRoutes = new LongAdder();
+    private final LongAdder numUnreachableSkipped = new LongAdder();
+
+    public CostSurfaceSearch(DataStorer data) {
+        this.data = data;
+    }
+
+    // Workspace for the calling thread, sized for the current cost surface.
+    public SearchWorkspace getWorkspace() {
+        return getWorkspace(workspaces);
+    }
+
+    private SearchWorkspace getWorkspace(ThreadLocal<SearchWorkspace> threadWorkspaces) {
+        int numCells = data.getWidth() * data.getHeight() + 1;
+        SearchWorkspace workspace = threadWorkspaces.get();
+        if (workspace == null || workspace.getNumCells() != numCells) {
+            workspace = new SearchWorkspace(numCells);
+            threadWorkspaces.set(workspace);
+        }
+        return workspace;
+    }
+
+    // Bucket queue for quantized surfaces, binary heap otherwise, unless set.
+    public String getQueueType() {
+        if (queueType != null) {
+            return queueType;
+        }
+        return data.getCostPrecision().equals("q") ? "b" : "h";
+    }
+
+    // "h" binary heap, "b" bucket queue, or null to pick by cost precision.
+    public void setQueueType(String queueType) {
+        this.queueType = queueType;
+    }
+
+    // Bucket queue when selected and the search has no heuristic. Buckets are as wide as the lowest cost per unit step length.
+    private SearchQueue getQueue(SearchWorkspace workspace, CostSurface costs, boolean aStar) {
+        double bucketWidth = costs.getMinCostPerStepLength() * (1 - 1e-9);
+        if (aStar || bucketWidth <= 0 || !getQueueType().equals("b")) {
+            return workspace.getHeap();
+        }
+        BucketQueue queue = workspace.getBucketQueue();
+        queue.setWidth(bucketWidth);
+        return queue;
+    }
+
+    public int[][] shortestPaths(int src, int[] destinations, CostSurface costs) {
+        return shortestPaths(src, destinations, costs, "d");
+    }
+
+    // Least cost paths from src to each destination (null if unreachable), from the route cache where it holds them.
+    // Destinations missing from the cache are searched together and their routes added to it.
+    public int[][] shortestPaths(int src, int[] destinations, CostSurface costs, String searchMode) {
+        boolean penalized = costs == data.getModifiedRoutingCosts();
+        if (data.getRouteCacheSize() <= 0 || (!penalized && costs != data.getRoutingCosts())) {
+            return searchPaths(src, destinations, costs, searchMode);
+        }
+        RouteCache routeCache = RouteCache.getShared();
+        long fingerprint = data.getRoutingCostsFingerprint();
+        long penaltyHash = penalized && !searchMode.equals("c") ? data.getRoutingPenaltyHash() : 0;
+        int kind = cacheKind(searchMode);
+        File file = data.getRouteCacheOnDisk() ? DataInOut.getRouteCacheFile(fingerprint) : null;
+
+        int[][] paths = new int[destinations.length][];
+        ArrayList<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < destinations.length; i++) {
+            int[] route = routeCache.get(new RouteCache.Key(src, destinations[i], fingerprint, penaltyHash, kind), file);
+            if (route == null) {
+                missing.add(i);
+            } else {
+                paths[i] = route == RouteCache.UNREACHABLE ? null : route;
+                numCachedRoutes.increment();
+            }
+        }
+        if (!missing.isEmpty()) {
+            int[] missingDestinations = new int[missing.size()];
+            for (int i = 0; i < missing.size(); i++) {
+                missingDestinations[i] = destinations[missing.get(i)];
+            }
+            int[][] missingPaths = searchPaths(src, missingDestinations, costs, searchMode);
+            for (int i = 0; i < missing.size(); i++) {
+                paths[missing.get(i)] = missingPaths[i];
+                routeCache.put(new RouteCache.Key(src, missingDestinations[i], fingerprint, penaltyHash, kind), missingPaths[i], file);
+            }
+        }
+        return paths;
+    }
+
+    // Kind of route searchMode finds: the number of pyramid levels for coarse-to-fine routes, the negated bits of the
+    // corridor width for searches held to a corridor, or 0 for least cost routes.
+    private int cacheKind(String searchMode) {
+        if (searchMode.equals("m")) {
+            return data.getRoutingPyramidLevels();
+        }
+        if (data.getCorridorWidth() > 0 && !searchMode.equals("p") && !searchMode.equals("c")) {
+            return -Float.floatToIntBits((float) data.getCorridorWidth());
+        }
+        return 0;
+    }
+
+    // Least cost paths from src to each destination (null if unreachable), searched without the route cache. The
+    // search stops once every destination is settled. On untiled routing costs, destinations outside src's connected
+    // component are left unreachable without searching.
+    public int[][] searchPaths(int src, int[] destinations, CostSurface costs, String searchMode) {
+        RoutingComponents components = costs == data.getRoutingCosts() || costs == data.getModifiedRoutingCosts() ? data.getRoutingComponents() : null;
+        if (components != null) {
+            int numConnected = 0;
+            for (int dest : destinations) {
+                if (components.connected(src, dest)) {
+                    numConnected++;
+                }
+            }
+            if (numConnected < destinations.length) {
+                numUnreachableSkipped.add(destinations.length - numConnected);
+                int[] connectedDestinations = new int[numConnected];
+                for (int i = 0, j = 0; i < destinations.length; i++) {
+                    if (components.connected(src, destinations[i])) {
+                        connectedDestinations[j++] = destinations[i];
+                    }
+                }
+                int[][] connectedPaths = numConnected == 0 ? new int[0][] : componentPaths(src, connectedDestinations, costs, searchMode);
+                int[][] paths = new int[destinations.length][];
+                for (int i = 0, j = 0; i < destinations.length; i++) {
+                    if (components.connected(src, destinations[i])) {
+                        paths[i] = connectedPaths[j++];
+                    }
+                }
+                return paths;
+            }
+        }
+        return componentPaths(src, destinations, costs, searchMode);
+    }
+
+    // Paths to destinations that may be in src's connected component.
+    private int[][] componentPaths(int src, int[] destinations, CostSurface costs, String searchMode) {
+        if (searchMode.equals("p")) {
+            return deltaSteppingPaths(src, destinations, costs);
+        }
+        if (searchMode.equals("c")) {
+            if (costs == data.getRoutingCosts() || costs == data.getModifiedRoutingCosts()) {
+                return hierarchyPaths(src, destinations);
+            }
+            searchMode = "ba";
+        }
+        if (searchMode.equals("m")) {
+            if (costs == data.getRoutingCosts() || costs == data.getModifiedRoutingCosts()) {
+                return pyramidPaths(src, destinations, costs, data.getRoutingPyramidLevels());
+            }
+            searchMode = "ba";
+        }
+        if (data.getCorridorWidth() > 0) {
+            return corridorPaths(src, destinations, costs, searchMode);
+        }
+        return search(src, destinations, costs, searchMode, null);
+    }
+
+    // Routes refined down the routing pyramid from numLevels levels up, or searched directly when a band holds no route.
+    public int[][] pyramidPaths(int src, int[] destinations, CostSurface costs, int numLevels) {
+        PyramidSearch pyramidSearch = pyramidSearches.get();
+        if (pyramidSearch == null || pyramidSearch.getPyramid() != data.getRoutingPyramid()) {
+            pyramidSearch = new PyramidSearch(data.getRoutingPyramid());
+            pyramidSearches.set(pyramidSearch);
+        }
+        int[][] paths = new int[destinations.length][];
+        for (int i = 0; i < destinations.length; i++) {
+            paths[i] = pyramidSearch.shortestPath(src, destinations[i], costs, getWorkspace(), numLevels);
+            numSearches.increment();
+            numCellsSettled.add(pyramidSearch.getNumSettled());
+            if (paths[i] == null) {
+                paths[i] = search(src, new int[]{destinations[i]}, costs, "ba", null)[0];
+            }
+        }
+        return paths;
+    }
+
+    // Search within a corridor around the source and destinations, doubling its width until every path is found clear of its edge.
+    private int[][] corridorPaths(int src, int[] destinations, CostSurface costs, String searchMode) {
+        for (double widthFactor = data.getCorridorWidth(); widthFactor <= MAX_CORRIDOR_WIDTH; widthFactor *= 2) {
+            Corridor corridor = new Corridor(src, destinations, data.getWidth(), data.getHeight(), widthFactor);
+            int[][] paths = search(src, destinations, costs, searchMode, corridor);
+            boolean clear = true;
+            for (int[] path : paths) {
+                if (path == null || corridor.touches(path)) {
+                    clear = false;
+                    break;
+                }
+            }
+            if (clear) {
+                return paths;
+            }
+            numCorridorRetries.increment();
+        }
+        return search(src, destinations, costs, searchMode, null);
+    }
+
+    // Search visiting only cells in corridor, or any cell if corridor is null.
+    private int[][] search(int src, int[] destinations, CostSurface costs, String searchMode, Corridor corridor) {
+        if ((searchMode.equals("b") || searchMode.equals("ba")) && destinations.length == 1 && src != destinations[0]) {
+            return new int[][]{bidirectionalPath(src, destinations[0], costs, searchMode.equals("ba"), corridor)};
+        }
+        SearchWorkspace workspace = getWorkspace();
+        workspace.reset();
+        int width = data.getWidth();
+        int lastCell = workspace.getNumCells() - 1;
+        int[] neighborOffsets = {-width - 1, -width, -width + 1, 1, width + 1, width, width - 1, -1};
+
+        // A* lower bound per unit of octile distance to the nearest destination, shaved so rounding cannot overestimate.
+        boolean aStar = searchMode.equals("a") || searchMode.equals("ba");
+        SearchQueue queue = getQueue(workspace, costs, aStar);
+        double minCostPerStep = aStar ? costs.getMinCostPerStepLength() * (1 - 1e-9) : 0;
+        int[] destX = new int[destinations.length];
+        int[] destY = new int[destinations.length];
+        for (int i = 0; i < destinations.length; i++) {
+            destX[i] = (destinations[i] - 1) % width;
+            destY[i] = (destinations[i] - 1) / width;
+        }
+
+        int remaining = 0;
+        for (int cell : destinations) {
+            if (!workspace.isTarget(cell)) {
+                workspace.markTarget(cell);
+                remaining++;
+            }
+        }
+
+        workspace.reach(src, 0, -1);
+        queue.update(src, 0);
+        int settled = 0;
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            if (workspace.isSettled(u)) {
+                continue;
+            }
+            workspace.settle(u);
+            settled++;
+            if (workspace.isTarget(u) && --remaining == 0) {
+                break;
+            }
+
+            double uCost = workspace.getCost(u);
+            for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                int v = u + neighborOffsets[neighborNum];
+                if (v < 1 || v > lastCell || workspace.isSettled(v)) {
+                    continue;
+                }
+                double altCost = uCost + costs.getCost(u, neighborNum);
+                if (altCost < workspace.getCost(v) && (corridor == null || corridor.contains(v))) {
+                    workspace.reach(v, altCost, u);
+                    if (aStar) {
+                        double distance = Double.MAX_VALUE;
+                        for (int i = 0; i < destinations.length; i++) {
+                            distance = Math.min(distance, octileDistance(v, destX[i], destY[i], width));
+                        }
+                        queue.update(v, altCost + minCostPerStep * distance);
+                    } else {
+                        queue.update(v, altCost);
+                    }
+                }
+            }
+        }
+        numSearches.increment();
+        numCellsSettled.add(settled);
+
+        int[][] paths = new int[destinations.length][];
+        for (int i = 0; i < destinations.length; i++) {
+            paths[i] = workspace.pathTo(src, destinations[i]);
+        }
+        return paths;
+    }
+
+    // Delta-stepping bucket width, by default a few times the lowest cost per unit step length.
+    public double getDelta(CostSurface costs) {
+        if (delta > 0) {
+            return delta;
+        }
+        double minCostPerStep = costs.getMinCostPerStepLength();
+        return minCostPerStep > 0 ? DELTA_STEPS * minCostPerStep : 1;
+    }
+
+    // Bucket width for delta-stepping searches, 0 to pick from the surface.
+    public void setDelta(double delta) {
+        this.delta = delta;
+    }
+
+    private int[][] deltaSteppingPaths(int src, int[] destinations, CostSurface costs) {
+        int numCells = data.getWidth() * data.getHeight() + 1;
+        DeltaStepping deltaStepping = deltaSteppings.get();
+        if (deltaStepping == null || deltaStepping.getNumCells() != numCells) {
+            deltaStepping = new DeltaStepping(numCells);
+            deltaSteppings.set(deltaStepping);
+        }
+        int[][] paths = deltaStepping.shortestPaths(src, destinations, costs, data.getWidth(), getDelta(costs));
+        numSearches.increment();
+        numCellsSettled.add(deltaStepping.getNumRelaxed());
+        return paths;
+    }
+
+    // Contraction hierarchy of the routing costs, read or built on first use.
+    public synchronized RoutingHierarchy getRoutingHierarchy() {
+        int numCells = data.getWidth() * data.getHeight() + 1;
+        if (hierarchy == null || hierarchy.getNumCells() != numCells || hierarchyVersion != data.getRoutingCostsVersion()) {
+            hierarchy = DataInOut.loadRoutingHierarchy();
+            hierarchyVersion = data.getRoutingCostsVersion();
+        }
+        return hierarchy;
+    }
+
+    private int[][] hierarchyPaths(int src, int[] destinations) {
+        RoutingHierarchy routingHierarchy = getRoutingHierarchy();
+        SearchWorkspace forward = getWorkspace(workspaces);
+        SearchWorkspace reverse = getWorkspace(reverseWorkspaces);
+        int[][] paths = new int[destinations.length][];
+        for (int i = 0; i < destinations.length; i++) {
+            paths[i] = routingHierarchy.shortestPath(src, destinations[i], forward, reverse, numCellsSettled);
+            numSearches.increment();
+        }
+        return paths;
+    }
+
+    // Least cost path from src to dest (null if unreachable), searching forward from src and backward from dest until the two meet.
+    private int[] bidirectionalPath(int src, int dest, CostSurface costs, boolean aStar, Corridor corridor) {
+        SearchWorkspace forward = getWorkspace(workspaces);
+        SearchWorkspace reverse = getWorkspace(reverseWorkspaces);
+        forward.reset();
+        reverse.reset();
+        SearchQueue forwardQueue = getQueue(forward, costs, aStar);
+        SearchQueue reverseQueue = getQueue(reverse, costs, aStar);
+        int width = data.getWidth();
+        int lastCell = forward.getNumCells() - 1;
+        int[] neighborOffsets = {-width - 1, -width, -width + 1, 1, width + 1, width, width - 1, -1};
+
+        // Forward keys add potential(cell) and reverse keys subtract it, which keeps both searches consistent.
+        double minCostPerStep = aStar ? costs.getMinCostPerStepLength() * (1 - 1e-9) : 0;
+        int srcX = (src - 1) % width;
+        int srcY = (src - 1) / width;
+        int destX = (dest - 1) % width;
+        int destY = (dest - 1) / width;
+
+        forward.reach(src, 0, -1);
+        forwardQueue.update(src, potential(src, srcX, srcY, destX, destY, width, minCostPerStep));
+        reverse.reach(dest, 0, -1);
+        reverseQueue.update(dest, -potential(dest, srcX, srcY, destX, destY, width, minCostPerStep));
+        double bestCost = Double.MAX_VALUE;
+        int meetingCell = -1;
+        int settled = 0;
+        while (!forwardQueue.isEmpty() && !reverseQueue.isEmpty() && forwardQueue.peekKey() + reverseQueue.peekKey() < bestCost) {
+            if (forwardQueue.size() <= reverseQueue.size()) {
+                int u = forwardQueue.poll();
+                if (forward.isSettled(u)) {
+                    continue;
+                }
+                forward.settle(u);
+                settled++;
+                double uCost = forward.getCost(u);
+                for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                    int v = u + neighborOffsets[neighborNum];
+                    if (v < 1 || v > lastCell || forward.isSettled(v)) {
+                        continue;
+                    }
+                    double altCost = uCost + costs.getCost(u, neighborNum);
+                    if (altCost < forward.getCost(v) && (corridor == null || corridor.contains(v))) {
+                        forward.reach(v, altCost, u);
+                        forwardQueue.update(v, altCost + potential(v, srcX, srcY, destX, destY, width, minCostPerStep));
+                        if (reverse.getCost(v) < Double.MAX_VALUE && altCost + reverse.getCost(v) < bestCost) {
+                            bestCost = altCost + reverse.getCost(v);
+                            meetingCell = v;
+                        }
+                    }
+                }
+            } else {
+                int u = reverseQueue.poll();
+                if (reverse.isSettled(u)) {
+                    continue;
+                }
+                reverse.settle(u);
+                settled++;
+                double uCost = reverse.getCost(u);
+                for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                    int v = u + neighborOffsets[neighborNum];
+                    if (v < 1 || v > lastCell || reverse.isSettled(v)) {
+                        continue;
+                    }
+                    // Edge from v back to u, the same as getNeighborNum(v, u).
+                    double altCost = uCost + costs.getCost(v, (neighborNum + 4) % 8);
+                    if (altCost < reverse.getCost(v) && (corridor == null || corridor.contains(v))) {
+                        reverse.reach(v, altCost, u);
+                        reverseQueue.update(v, altCost - potential(v, srcX, srcY, destX, destY, width, minCostPerStep));
+                        if (forward.getCost(v) < Double.MAX_VALUE && altCost + forward.getCost(v) < bestCost) {
+                            bestCost = altCost + forward.getCost(v);
+                            meetingCell = v;
+                        }
+                    }
+                }
+            }
+        }
+        numSearches.increment();
+        numCellsSettled.add(settled);
+
+        if (meetingCell < 0) {
+            return null;
+        }
+        int[] forwardPath = forward.pathTo(src, meetingCell);
+        int length = forwardPath.length;
+        for (int cell = meetingCell; cell != dest; cell = reverse.getPrevious(cell)) {
+            length++;
+        }
+        int[] path = Arrays.copyOf(forwardPath, length);
+        for (int cell = meetingCell, i = forwardPath.length; cell != dest; i++) {
+            cell = reverse.getPrevious(cell);
+            path[i] = cell;
+        }
+        return path;
+    }
+
+    // Half the difference of the A* bounds to dest and from src, zero for Dijkstra.
+    private static double potential(int cell, int srcX, int srcY, int destX, int destY, int width, double minCostPerStep) {
+        if (minCostPerStep == 0) {
+            return 0;
+        }
+        return minCostPerStep * (octileDistance(cell, destX, destY, width) - octileDistance(cell, srcX, srcY, width)) / 2;
+    }
+
+    // Length of the shortest 8 neighbor path between cell and (x, y), ignoring costs.
+    static double octileDistance(int cell, int x, int y, int width) {
+        int dx = Math.abs((cell - 1) % width - x);
+        int dy = Math.abs((cell - 1) / width - y);
+        return Math.max(dx, dy) + (CostSurface.DIAGONAL_LENGTH - 1) * Math.min(dx, dy);
+    }
+
+    public long getNumSearches() {
+        return numSearches.sum();
+    }
+
+    public long getNumCellsSettled() {
+        return numCellsSettled.sum();
+    }
+
+    // Searches repeated in a wider corridor, or without one.
+    public long getNumCorridorRetries() {
+        return numCorridorRetries.sum();
+    }
+
+    // Routes taken from the route cache rather than searched.
+    public long getNumCachedRoutes() {
+        return numCachedRoutes.sum();
+    }
+
+    // Destinations outside their source's connected component, left unreachable without a search.
+    public long getNumUnreachableSkipped() {
+        return numUnreachableSkipped.sum();
+    }
+
+    public void resetCounters() {
+        numUnreachableSkipped.reset();
+        numCachedRoutes.reset();
+        numSearches.reset();
+        numCellsSettled.reset();
+        numCorridorRetries.reset();
+    }
+}
@@ -0,0 +1,343 @@
+package solver;
+
+import dataStore.CostSurface;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parallel single source search over a cost surface (delta-stepping). Cells
+ * are grouped in buckets of cost width delta and each bucket is emptied in
+ * rounds: the round's cells are split into chunks whose light edges (cost
+ * up to delta) are relaxed concurrently on the fork-join pool, with costs
+ * lowered by compare and set. Cells lowered into the same bucket are relaxed
+ * again in the next round. Heavy edges can only reach later buckets, so they
+ * are set aside as a cell is first removed from the bucket and relaxed once
+ * the bucket stays empty, from the cell's final cost. Least costs do not
+ * depend on the order of relaxation, and paths are traced back from the
+ * final costs, so results are the same for any number of threads. Suited to
+ * searches that explore most of the surface.
+ *
+ * Only the cells reached by a search are reset before the next one, and
+ * cells are marked with stamps as in SearchWorkspace, so a short search
+ * costs no more than the cells it reaches.
+ *
+ * @author yaw
+ */
+public class DeltaStepping {
+
+    private static final int CHUNK_SIZE = 1024;     // Cells relaxed per task
+    private static final long UNREACHED = Double.doubleToRawLongBits(Double.MAX_VALUE);
+
+    private final int numCells;
+    private final AtomicLongArray costs;    // Bits of each cell's best known cost
+    private final long[] queuedBucket;  // Bucket a cell is waiting in, -1 if none
+    private final int[] reached;    // Search in which a cell's cost was set
+    private final int[] marked;     // Bucket or path trace in which a cell was marked
+    private int[] reachedCells = new int[1024];     // Cells whose cost was set by the last search
+    private int numReached;
+    private int searchNum;
+    private int markNum;
+    private int[][] buckets = new int[64][];
+    private int[] bucketSizes = new int[64];
+    private int numBuckets;     // Buckets that may hold cells
+    private long numRelaxed;
+
+    public DeltaStepping(int numCells) {
+        this.numCells = numCells;
+        costs = new AtomicLongArray(numCells);
+        for (int cell = 0; cell < numCells; cell++) {
+            costs.set(cell, UNREACHED);
+        }
+        queuedBucket = new long[numCells];
+        Arrays.fill(queuedBucket, -1);
+        reached = new int[numCells];
+        marked = new int[numCells];
+    }
+
+    public int getNumCells() {
+        return numCells;
+    }
+
+    // Cells relaxed by the last search, counting cells relaxed again after their cost was lowered.
+    public long getNumRelaxed() {
+        return numRelaxed;
+    }
+
+    // Least cost paths from src to each destination (null if unreachable). The search stops once every destination's bucket is emptied.
+    public int[][] shortestPaths(int src, int[] destinations, CostSurface surface, int width, double delta) {
+        // Reset the cells reached by the last search.
+        for (int i = 0; i < numReached; i++) {
+            costs.set(reachedCells[i], UNREACHED);
+            queuedBucket[reachedCells[i]] = -1;
+        }
+        numReached = 0;
+        for (int i = 0; i < numBuckets; i++) {
+            buckets[i] = null;
+            bucketSizes[i] = 0;
+        }
+        numBuckets = 0;
+        searchNum = nextStamp(searchNum, reached);
+        numRelaxed = 0;
+        int[] neighborOffsets = {-width - 1, -width, -width + 1, 1, width + 1, width, width - 1, -1};
+
+        costs.set(src, Double.doubleToRawLongBits(0));
+        reach(src);
+        queue(src, 0);
+        for (long bucket = 0; bucket < numBuckets; bucket++) {
+            markNum = nextStamp(markNum, marked);
+            ArrayList<Relaxer> heavyRelaxers = new ArrayList<>();     // Heavy edges set aside by the light relaxers
+            while (bucketSizes[(int) bucket] > 0) {
+                // Take the bucket's cells and relax their light edges in chunks, setting aside the heavy edges of
+                // cells removed for the first time.
+                int[] cells = buckets[(int) bucket];
+                int numInRound = bucketSizes[(int) bucket];
+                buckets[(int) bucket] = null;
+                bucketSizes[(int) bucket] = 0;
+                ArrayList<Relaxer> relaxers = new ArrayList<>();
+                for (int start = 0; start < numInRound; start += CHUNK_SIZE) {
+                    relaxers.add(new Relaxer(cells, start, Math.min(start + CHUNK_SIZE, numInRound), bucket, delta, surface, neighborOffsets));
+                }
+                invoke(relaxers, delta);
+                for (Relaxer relaxer : relaxers) {
+                    numRelaxed += relaxer.numRelaxed;
+                    if (relaxer.numHeavy > 0) {
+                        heavyRelaxers.add(new Relaxer(relaxer.heavyFrom, relaxer.heavyTo, relaxer.heavyCosts, 0, relaxer.numHeavy));
+                    }
+                }
+            }
+
+            // Relax the heavy edges set aside, now that the costs they start from are final.
+            invoke(heavyRelaxers, delta);
+
+            // Costs below the end of this bucket are final.
+            boolean done = true;
+            for (int cell : destinations) {
+                if (getCost(cell) >= (bucket + 1) * delta) {
+                    done = false;
+                    break;
+                }
+            }
+            if (done) {
+                break;
+            }
+        }
+
+        int[][] paths = new int[destinations.length][];
+        for (int i = 0; i < destinations.length; i++) {
+            paths[i] = pathTo(src, destinations[i], surface, neighborOffsets);
+        }
+        return paths;
+    }
+
+    public double getCost(int cell) {
+        return Double.longBitsToDouble(costs.get(cell));
+    }
+
+    // Run the relaxers, then queue lowered cells in their current buckets, once each.
+    private void invoke(ArrayList<Relaxer> relaxers, double delta) {
+        if (relaxers.isEmpty()) {
+            return;
+        } else if (relaxers.size() == 1) {
+            relaxers.get(0).compute();
+        } else {
+            ForkJoinTask.invokeAll(relaxers);
+        }
+        for (Relaxer relaxer : relaxers) {
+            for (int i = 0; i < relaxer.numLowered; i++) {
+                int cell = relaxer.lowered[i];
+                long cellBucket = (long) (getCost(cell) / delta);
+                if (queuedBucket[cell] != cellBucket) {
+                    reach(cell);
+                    queue(cell, cellBucket);
+                }
+            }
+        }
+    }
+
+    // Record that cell's cost was set in this search.
+    private void reach(int cell) {
+        if (reached[cell] != searchNum) {
+            reached[cell] = searchNum;
+            if (numReached == reachedCells.length) {
+                reachedCells = Arrays.copyOf(reachedCells, numReached * 2);
+            }
+            reachedCells[numReached++] = cell;
+        }
+    }
+
+    // Stamp after stamp, clearing stamps when they run out.
+    private static int nextStamp(int stamp, int[] stamps) {
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            return 1;
+        }
+        return stamp + 1;
+    }
+
+    private void queue(int cell, long bucket) {
+        if (bucket >= bucketSizes.length) {
+            int length = bucketSizes.length;
+            while (bucket >= length) {
+                length *= 2;
+            }
+            buckets = Arrays.copyOf(buckets, length);
+            bucketSizes = Arrays.copyOf(bucketSizes, length);
+        }
+        int i = (int) bucket;
+        if (buckets[i] == null) {
+            buckets[i] = new int[16];
+        } else if (bucketSizes[i] == buckets[i].length) {
+            buckets[i] = Arrays.copyOf(buckets[i], bucketSizes[i] * 2);
+        }
+        buckets[i][bucketSizes[i]++] = cell;
+        queuedBucket[cell] = bucket;
+        numBuckets = Math.max(numBuckets, i + 1);
+    }
+
+    // Trace back from cell through neighbors whose cost plus the edge cost is the cost of the cell they lead to,
+    // preferring the lowest neighbor number and backing up at dead ends. Cells are marked as they are visited, so
+    // edges of zero cost cannot lead the trace around a cycle.
+    private int[] pathTo(int src, int cell, CostSurface surface, int[] neighborOffsets) {
+        if (getCost(cell) == Double.MAX_VALUE) {
+            return null;
+        }
+        markNum = nextStamp(markNum, marked);
+        int[] reversed = new int[16];
+        int[] nextNeighborNums = new int[16];   // Next neighbor to try from each cell of the trace
+        int length = 0;
+        reversed[length++] = cell;
+        marked[cell] = markNum;
+        while (length > 0 && reversed[length - 1] != src) {
+            int v = reversed[length - 1];
+            double cost = getCost(v);
+            int previous = -1;
+            while (nextNeighborNums[length - 1] < 8 && previous < 0) {
+                int neighborNum = nextNeighborNums[length - 1]++;
+                int u = v + neighborOffsets[neighborNum];
+                if (u >= 1 && u < numCells && marked[u] != markNum && getCost(u) + surface.getCost(u, (neighborNum + 4) % 8) == cost) {
+                    previous = u;
+                }
+            }
+            if (previous < 0) {
+                length--;
+                continue;
+            }
+            if (length == reversed.length) {
+                reversed = Arrays.copyOf(reversed, length * 2);
+                nextNeighborNums = Arrays.copyOf(nextNeighborNums, length * 2);
+            }
+            marked[previous] = markNum;
+            reversed[length] = previous;
+            nextNeighborNums[length] = 0;
+            length++;
+        }
+        if (length == 0) {
+            return null;
+        }
+        int[] path = new int[length];
+        for (int i = 0; i < length; i++) {
+            path[i] = reversed[length - 1 - i];
+        }
+        return path;
+    }
+
+    // Relaxes the light edges of a chunk of cells, or a chunk of heavy edges set aside.
+    private class Relaxer extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final int end;
+        private int[] cells;
+        private long bucket;
+        private double delta;
+        private CostSurface surface;
+        private int[] neighborOffsets;
+        private int[] edgesFrom;
+        private int[] edgesTo;
+        private double[] edgeCosts;
+        public int[] lowered = new int[64];
+        public int numLowered;
+        public int[] heavyFrom = new int[64];
+        public int[] heavyTo = new int[64];
+        public double[] heavyCosts = new double[64];
+        public int numHeavy;
+        public int numRelaxed;
+
+        public Relaxer(int[] cells, int start, int end, long bucket, double delta, CostSurface surface, int[] neighborOffsets) {
+            this.cells = cells;
+            this.start = start;
+            this.end = end;
+            this.bucket = bucket;
+            this.delta = delta;
+            this.surface = surface;
+            this.neighborOffsets = neighborOffsets;
+        }
+
+        public Relaxer(int[] edgesFrom, int[] edgesTo, double[] edgeCosts, int start, int end) {
+            this.edgesFrom = edgesFrom;
+            this.edgesTo = edgesTo;
+            this.edgeCosts = edgeCosts;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (cells == null) {
+                for (int i = start; i < end; i++) {
+                    lower(edgesTo[i], getCost(edgesFrom[i]) + edgeCosts[i]);
+                }
+                return;
+            }
+            double bucketStart = bucket * delta;    // Cells cheaper than this are final, so heavy edges to them are not set aside
+            for (int i = start; i < end; i++) {
+                int u = cells[i];
+                double uCost = getCost(u);
+                if ((long) (uCost / delta) != bucket) {
+                    continue;   // Lowered into an earlier bucket and relaxed there
+                }
+                queuedBucket[u] = -1;
+                boolean first = marked[u] != markNum;   // Removed from the bucket for the first time
+                marked[u] = markNum;
+                numRelaxed++;
+                for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                    int v = u + neighborOffsets[neighborNum];
+                    if (v < 1 || v >= numCells) {
+                        continue;
+                    }
+                    double edgeCost = surface.getCost(u, neighborNum);
+                    if (edgeCost <= delta) {
+                        lower(v, uCost + edgeCost);
+                    } else if (edgeCost < Double.MAX_VALUE && first && getCost(v) >= bucketStart) {
+                        if (numHeavy == heavyFrom.length) {
+                            heavyFrom = Arrays.copyOf(heavyFrom, numHeavy * 2);
+                            heavyTo = Arrays.copyOf(heavyTo, numHeavy * 2);
+                            heavyCosts = Arrays.copyOf(heavyCosts, numHeavy * 2);
+                        }
+                        heavyFrom[numHeavy] = u;
+                        heavyTo[numHeavy] = v;
+                        heavyCosts[numHeavy++] = edgeCost;
+                    }
+                }
+            }
+        }
+
+        private void lower(int v, double altCost) {
+            long currentBits = costs.get(v);
+            while (altCost < Double.longBitsToDouble(currentBits)) {
+                if (costs.compareAndSet(v, currentBits, Double.doubleToRawLongBits(altCost))) {
+                    if (numLowered == lowered.length) {
+                        lowered = Arrays.copyOf(lowered, numLowered * 2);
+                    }
+                    lowered[numLowered++] = v;
+                    break;
+                }
+                currentBits = costs.get(v);
+            }
+        }
+    }
+}
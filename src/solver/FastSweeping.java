@@ -0,0 +1,290 @@
+package solver;
+
+import dataStore.CostSurface;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulated cost from a set of sources to every cell of a cost surface by
+ * fast sweeping. Sweeps alternate down and up the raster; each row takes
+ * costs from the row before it in one pass over the whole row, then from its
+ * left and right neighbors in a pass each way along it. Sweeping repeats
+ * until a down and an up sweep change nothing, which gives the least costs
+ * of the 8 neighbor graph. Rows are split into bands swept concurrently,
+ * each reading its neighbors' edge rows as they change.
+ *
+ * Sweeping converges in a few sweeps where least cost paths run mostly
+ * along or across the rows, but can take hundreds on noisy surfaces where
+ * they wind. Once the rows swept reach MAX_SWEEP_WORK sweeps of the whole
+ * raster, the costs are finished by a multi-source Dijkstra search over the
+ * same edges instead.
+ *
+ * Costs are summed in float rather than double, so they match Dijkstra's
+ * route costs within a relative error of about 6e-8 per step on the route
+ * (1e-4 for a route of 1,600 cells). Edge costs are copied into float
+ * arrays by incoming direction, 32 bytes per cell.
+ *
+ * @author yaw
+ */
+public class FastSweeping {
+
+    public static final int MAX_SWEEP_WORK = 32;    // Whole raster sweeps before falling back to Dijkstra
+
+    private final int width;
+    private final int height;
+    private final int numCells;
+    private final float[] costs;    // By cell, padded by one cell for the last row's reads below
+    private final float[][] incoming;   // By neighbor number, cost of the edge from that neighbor to each cell
+    private final int[] neighborOffsets;
+    private final int[] rowChangedSweep;    // Last sweep in which each row's costs changed
+    private final AtomicLong numRowsSwept = new AtomicLong();
+    private int sweepNum;
+    private boolean searched;   // Finished by Dijkstra
+    private byte[] previous;    // Set once costs are final
+
+    private FastSweeping(int width, int height) {
+        this.width = width;
+        this.height = height;
+        numCells = width * height + 1;
+        costs = new float[numCells + 1];
+        incoming = new float[8][numCells + 1];
+        neighborOffsets = new int[]{-width - 1, -width, -width + 1, 1, width + 1, width, width - 1, -1};
+        rowChangedSweep = new int[height];
+    }
+
+    // Least cost to each cell from the nearest source, over the edges of surface.
+    public static AccumulatedCostRaster accumulate(CostSurface surface, int width, int height, int[] sources) {
+        FastSweeping sweeping = new FastSweeping(width, height);
+        int numBands = Math.max(1, Math.min(height, ForkJoinPool.getCommonPoolParallelism()));
+        int[] bandStarts = new int[numBands + 1];
+        for (int band = 0; band <= numBands; band++) {
+            bandStarts[band] = (int) ((long) height * band / numBands);
+        }
+
+        Arrays.fill(sweeping.costs, Float.POSITIVE_INFINITY);
+        sweeping.run(bandStarts, Step.LOAD_EDGES, surface);
+        for (int src : sources) {
+            sweeping.costs[src] = 0;
+        }
+
+        // Stop after a down and an up sweep in a row leave every cost unchanged, or search once sweeping is slow.
+        int unchangedSweeps = 0;
+        while (unchangedSweeps < 2) {
+            if (sweeping.numRowsSwept.get() >= (long) MAX_SWEEP_WORK * height) {
+                sweeping.search(sources);
+                break;
+            }
+            boolean changed = sweeping.run(bandStarts, sweeping.sweepNum % 2 == 0 ? Step.SWEEP_DOWN : Step.SWEEP_UP, surface);
+            unchangedSweeps = changed ? 0 : unchangedSweeps + 1;
+            sweeping.sweepNum++;
+        }
+
+        sweeping.tracePrevious(sources);
+        return new AccumulatedCostRaster(width, Arrays.copyOf(sweeping.costs, sweeping.numCells), sweeping.previous, sweeping.sweepNum, sweeping.searched);
+    }
+
+    private enum Step {
+        LOAD_EDGES, SWEEP_DOWN, SWEEP_UP
+    }
+
+    // Run a step over every band, returning whether any cost changed.
+    private boolean run(int[] bandStarts, Step step, CostSurface surface) {
+        ArrayList<Band> bands = new ArrayList<>();
+        for (int band = 0; band < bandStarts.length - 1; band++) {
+            bands.add(new Band(bandStarts[band], bandStarts[band + 1], step, surface));
+        }
+        if (bands.size() == 1) {
+            bands.get(0).compute();
+        } else {
+            ForkJoinTask.invokeAll(bands);
+        }
+        boolean changed = false;
+        for (Band band : bands) {
+            changed |= band.changed;
+        }
+        return changed;
+    }
+
+    private void loadEdges(int firstRow, int lastRow, CostSurface surface) {
+        int[] dx = {-1, 0, 1, 1, 1, 0, -1, -1};
+        int[] dy = {-1, -1, -1, 0, 1, 1, 1, 0};
+        for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+            float[] costsIn = incoming[neighborNum];
+            int reverseNum = (neighborNum + 4) % 8;
+            for (int y = firstRow; y < lastRow; y++) {
+                for (int x = 0; x < width; x++) {
+                    int cell = y * width + x + 1;
+                    int nx = x + dx[neighborNum];
+                    int ny = y + dy[neighborNum];
+                    if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                        costsIn[cell] = Float.POSITIVE_INFINITY;
+                    } else {
+                        costsIn[cell] = (float) surface.getCost(cell + neighborOffsets[neighborNum], reverseNum);
+                    }
+                }
+            }
+        }
+        if (firstRow == 0) {
+            for (float[] costsIn : incoming) {
+                costsIn[0] = Float.POSITIVE_INFINITY;
+            }
+        }
+    }
+
+    // Sweep rows firstRow to lastRow (exclusive) downward or upward, returning whether any cost changed. A row is skipped
+    // unless the row before it changed since this row was last swept the same way; a sweep of slack covers rows that
+    // another band changed after they were read.
+    private boolean sweep(int firstRow, int lastRow, boolean down) {
+        boolean changed = false;
+        float[] fromA = incoming[down ? 0 : 6];
+        float[] fromB = incoming[down ? 1 : 5];
+        float[] fromC = incoming[down ? 2 : 4];
+        float[] fromLeft = incoming[7];
+        float[] fromRight = incoming[3];
+        int rowOffset = down ? -width : width;
+        for (int i = firstRow; i < lastRow; i++) {
+            int y = down ? i : firstRow + lastRow - 1 - i;
+            int rowBefore = down ? y - 1 : y + 1;
+            if (rowBefore < 0 || rowBefore >= height || rowChangedSweep[rowBefore] < sweepNum - 2) {
+                if (sweepNum >= 2) {
+                    continue;
+                }
+            }
+            int rowStart = y * width + 1;
+            int rowEnd = rowStart + width;
+            boolean rowChanged = false;
+
+            // From the row before, independently for each cell.
+            if (rowBefore >= 0 && rowBefore < height) {
+                for (int cell = rowStart; cell < rowEnd; cell++) {
+                    int before = cell + rowOffset;
+                    float best = Math.min(Math.min(costs[before - 1] + fromA[cell], costs[before] + fromB[cell]), costs[before + 1] + fromC[cell]);
+                    if (best < costs[cell]) {
+                        costs[cell] = best;
+                        rowChanged = true;
+                    }
+                }
+            }
+
+            // Along the row, each way.
+            for (int cell = rowStart + 1; cell < rowEnd; cell++) {
+                float best = costs[cell - 1] + fromLeft[cell];
+                if (best < costs[cell]) {
+                    costs[cell] = best;
+                    rowChanged = true;
+                }
+            }
+            for (int cell = rowEnd - 2; cell >= rowStart; cell--) {
+                float best = costs[cell + 1] + fromRight[cell];
+                if (best < costs[cell]) {
+                    costs[cell] = best;
+                    rowChanged = true;
+                }
+            }
+            if (rowChanged) {
+                rowChangedSweep[y] = sweepNum;
+                changed = true;
+            }
+            numRowsSwept.incrementAndGet();
+        }
+        return changed;
+    }
+
+    // Least costs from the sources by Dijkstra's algorithm over the loaded edges, replacing the swept costs. Costs are
+    // summed in float as in the sweeps.
+    private void search(int[] sources) {
+        searched = true;
+        Arrays.fill(costs, Float.POSITIVE_INFINITY);
+        IndexedHeap heap = new IndexedHeap(numCells);
+        for (int src : sources) {
+            costs[src] = 0;
+            heap.update(src, 0);
+        }
+        while (!heap.isEmpty()) {
+            int cell = heap.poll();
+            float cost = costs[cell];
+            for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                int neighbor = cell + neighborOffsets[neighborNum];
+                if (neighbor < 1 || neighbor >= numCells) {
+                    continue;
+                }
+                float altCost = cost + incoming[(neighborNum + 4) % 8][neighbor];
+                if (altCost < costs[neighbor]) {
+                    costs[neighbor] = altCost;
+                    heap.update(neighbor, altCost);
+                }
+            }
+        }
+    }
+
+    // Point each reached cell at a neighbor it takes its cost from, searching out from the sources over such edges so
+    // that every path leads back to a source, even across edges of zero cost.
+    private void tracePrevious(int[] sources) {
+        previous = new byte[numCells];
+        Arrays.fill(previous, AccumulatedCostRaster.NO_PREVIOUS);
+        long[] reached = new long[(numCells + 63) >>> 6];
+        int[] queue = new int[numCells];
+        int head = 0;
+        int tail = 0;
+        for (int src : sources) {
+            if ((reached[src >>> 6] & (1L << src)) == 0) {
+                reached[src >>> 6] |= 1L << src;
+                queue[tail++] = src;
+            }
+        }
+        while (head < tail) {
+            int cell = queue[head++];
+            float cost = costs[cell];
+            for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                int neighbor = cell + neighborOffsets[neighborNum];
+                if (neighbor < 1 || neighbor >= numCells || (reached[neighbor >>> 6] & (1L << neighbor)) != 0) {
+                    continue;
+                }
+                int reverseNum = (neighborNum + 4) % 8;
+                float costIn = incoming[reverseNum][neighbor];
+                if (costIn < Float.POSITIVE_INFINITY && cost + costIn == costs[neighbor]) {
+                    previous[neighbor] = (byte) reverseNum;
+                    reached[neighbor >>> 6] |= 1L << neighbor;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+    }
+
+    private class Band extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int firstRow;
+        private final int lastRow;
+        private final Step step;
+        private final CostSurface surface;
+        public boolean changed;
+
+        public Band(int firstRow, int lastRow, Step step, CostSurface surface) {
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+            this.step = step;
+            this.surface = surface;
+        }
+
+        @Override
+        protected void compute() {
+            switch (step) {
+                case LOAD_EDGES:
+                    loadEdges(firstRow, lastRow, surface);
+                    break;
+                case SWEEP_DOWN:
+                    changed = sweep(firstRow, lastRow, true);
+                    break;
+                case SWEEP_UP:
+                    changed = sweep(firstRow, lastRow, false);
+                    break;
+            }
+        }
+    }
+}
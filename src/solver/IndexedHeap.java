@@ -0,0 +1,121 @@
+package solver;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of cell numbers keyed by cost. The heap slot of each
+ * queued cell is tracked, so a cell is queued at most once and its key is
+ * lowered in place (decrease-key) instead of being inserted again.
+ *
+ * @author yaw
+ */
+public class IndexedHeap implements SearchQueue {
+
+    private final int[] cells;
+    private final double[] keys;
+    private final int[] position;   // Heap slot of each cell, -1 if not queued
+    private int size;
+
+    public IndexedHeap(int numCells) {
+        cells = new int[numCells];
+        keys = new double[numCells];
+        position = new int[numCells];
+        Arrays.fill(position, -1);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int cell) {
+        return position[cell] >= 0;
+    }
+
+    @Override
+    public void update(int cell, double key) {
+        int slot = position[cell];
+        if (slot < 0) {
+            slot = size++;
+            cells[slot] = cell;
+            keys[slot] = key;
+            position[cell] = slot;
+            siftUp(slot);
+        } else if (key < keys[slot]) {
+            keys[slot] = key;
+            siftUp(slot);
+        }
+    }
+
+    @Override
+    public double peekKey() {
+        return keys[0];
+    }
+
+    @Override
+    public int poll() {
+        int cell = cells[0];
+        position[cell] = -1;
+        size--;
+        if (size > 0) {
+            cells[0] = cells[size];
+            keys[0] = keys[size];
+            position[cells[0]] = 0;
+            siftDown(0);
+        }
+        return cell;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[cells[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int slot) {
+        int cell = cells[slot];
+        double key = keys[slot];
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            cells[slot] = cells[parent];
+            keys[slot] = keys[parent];
+            position[cells[slot]] = slot;
+            slot = parent;
+        }
+        cells[slot] = cell;
+        keys[slot] = key;
+        position[cell] = slot;
+    }
+
+    private void siftDown(int slot) {
+        int cell = cells[slot];
+        double key = keys[slot];
+        int half = size >>> 1;
+        while (slot < half) {
+            int child = 2 * slot + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            cells[slot] = cells[child];
+            keys[slot] = keys[child];
+            position[cells[slot]] = slot;
+            slot = child;
+        }
+        cells[slot] = cell;
+        keys[slot] = key;
+        position[cell] = slot;
+    }
+}
@@ -0,0 +1,128 @@
+package solver;
+
+import dataStore.CostSurface;
+import dataStore.RoutingPyramid;
+
+/**
+ * Coarse-to-fine pair search over a routing pyramid. The route is found on
+ * the coarsest level used, then searched again one level finer at a time,
+ * visiting only cells that lie in a band of coarse cells around the route
+ * from the level above. Each level runs as A*. Routes are near optimal
+ * rather than exact; a band that holds no route gives no path.
+ *
+ * @author yaw
+ */
+public class PyramidSearch {
+
+    private static final int BAND_RADIUS = 2;   // Coarse cells on each side of a coarse route that the next level may visit
+
+    private final RoutingPyramid pyramid;
+    private final SearchWorkspace[] workspaces;     // Per coarse level, created on first use
+    private final int[][] bands;    // Per coarse level, search number in which each cell was last in the band
+    private int searchNum;
+    private long numSettled;
+
+    public PyramidSearch(RoutingPyramid pyramid) {
+        this.pyramid = pyramid;
+        workspaces = new SearchWorkspace[pyramid.getNumLevels() + 1];
+        bands = new int[pyramid.getNumLevels() + 1][];
+    }
+
+    public RoutingPyramid getPyramid() {
+        return pyramid;
+    }
+
+    // Cells settled over all levels by the last search.
+    public long getNumSettled() {
+        return numSettled;
+    }
+
+    // Route from src to dest on costs, starting numLevels levels up (at most the pyramid's). Level 0 uses costs and fullWorkspace.
+    public int[] shortestPath(int src, int dest, CostSurface costs, SearchWorkspace fullWorkspace, int numLevels) {
+        numLevels = Math.min(numLevels, pyramid.getNumLevels());
+        searchNum++;
+        numSettled = 0;
+        int[] path = null;
+        for (int level = numLevels; level >= 0; level--) {
+            CostSurface levelCosts = level == 0 ? costs : pyramid.getLevel(level);
+            SearchWorkspace workspace = level == 0 ? fullWorkspace : getWorkspace(level);
+            path = search(level, pyramid.getCell(level, src), pyramid.getCell(level, dest), levelCosts, workspace, level < numLevels);
+            if (path == null) {
+                return null;
+            }
+            if (level > 0) {
+                markBand(level, path);
+            }
+        }
+        return path;
+    }
+
+    private SearchWorkspace getWorkspace(int level) {
+        if (workspaces[level] == null) {
+            workspaces[level] = new SearchWorkspace(pyramid.getWidth(level) * pyramid.getHeight(level) + 1);
+            bands[level] = new int[pyramid.getWidth(level) * pyramid.getHeight(level) + 1];
+        }
+        return workspaces[level];
+    }
+
+    // Mark the level's cells within BAND_RADIUS of path as the band for the level below.
+    private void markBand(int level, int[] path) {
+        int width = pyramid.getWidth(level);
+        int height = pyramid.getHeight(level);
+        int[] band = bands[level];
+        for (int cell : path) {
+            int x = (cell - 1) % width;
+            int y = (cell - 1) / width;
+            for (int by = Math.max(y - BAND_RADIUS, 0); by <= Math.min(y + BAND_RADIUS, height - 1); by++) {
+                for (int bx = Math.max(x - BAND_RADIUS, 0); bx <= Math.min(x + BAND_RADIUS, width - 1); bx++) {
+                    band[by * width + bx + 1] = searchNum;
+                }
+            }
+        }
+    }
+
+    // A* from src to dest on one level, restricted to the band from the level above if banded.
+    private int[] search(int level, int src, int dest, CostSurface costs, SearchWorkspace workspace, boolean banded) {
+        workspace.reset();
+        IndexedHeap heap = workspace.getHeap();
+        int width = pyramid.getWidth(level);
+        int lastCell = workspace.getNumCells() - 1;
+        int[] neighborOffsets = {-width - 1, -width, -width + 1, 1, width + 1, width, width - 1, -1};
+        double minCostPerStep = costs.getMinCostPerStepLength() * (1 - 1e-9);
+        int destX = (dest - 1) % width;
+        int destY = (dest - 1) / width;
+        int[] band = banded ? bands[level + 1] : null;
+        int parentWidth = banded ? pyramid.getWidth(level + 1) : 0;
+
+        workspace.reach(src, 0, -1);
+        heap.update(src, 0);
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            workspace.settle(u);
+            numSettled++;
+            if (u == dest) {
+                return workspace.pathTo(src, dest);
+            }
+            double uCost = workspace.getCost(u);
+            for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                int v = u + neighborOffsets[neighborNum];
+                if (v < 1 || v > lastCell || workspace.isSettled(v)) {
+                    continue;
+                }
+                double altCost = uCost + costs.getCost(u, neighborNum);
+                if (altCost < workspace.getCost(v)) {
+                    int vx = (v - 1) % width;
+                    int vy = (v - 1) / width;
+                    if (banded && band[(vy >> 1) * parentWidth + (vx >> 1) + 1] != searchNum) {
+                        continue;
+                    }
+                    workspace.reach(v, altCost, u);
+                    int dx = Math.abs(vx - destX);
+                    int dy = Math.abs(vy - destY);
+                    heap.update(v, altCost + minCostPerStep * (Math.max(dx, dy) + (CostSurface.DIAGONAL_LENGTH - 1) * Math.min(dx, dy)));
+                }
+            }
+        }
+        return null;
+    }
+}
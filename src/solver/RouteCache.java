@@ -0,0 +1,367 @@
+package solver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Routes shared between searches, keyed by their endpoints and the surface
+ * they were searched on: a fingerprint of the routing costs and the hash of
+ * the path sharing penalties over them. A route is only reused where a new
+ * search would see the same costs. One cache is shared by every solver in
+ * the process, so scenarios of a dataset reuse each other's routes.
+ *
+ * Routes are held in a bounded in memory tier that drops the least recently
+ * used routes first, split into stripes by key so that concurrent searches
+ * rarely wait on the same lock. An optional disk tier appends each new route
+ * to a file per routing cost fingerprint, which later sessions read back.
+ * A disk file is a header (magic, version, fingerprint) followed by records
+ * of source, destination, kind, penalty hash, length and route cells.
+ * Sessions sharing a file append at its end under a file lock, and a
+ * record's header is checked against the key before its cells are used.
+ *
+ * @author yaw
+ */
+public class RouteCache {
+
+    public static final String DIRECTORY_NAME = "RouteCache";
+    public static final long DEFAULT_CAPACITY = 10000000;
+    public static final int[] UNREACHABLE = new int[0];     // Cached result for a destination with no route
+
+    private static final int NUM_STRIPES = 16;
+    private static final int ENTRY_CELLS = 16;  // Cells of memory charged to each route for its key and entry
+    private static final long MAX_FILE_SIZE = 1L << 30;
+    private static final int MAGIC = 0x53435243;    // "SCRC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 24;
+
+    private static final RouteCache shared = new RouteCache(DEFAULT_CAPACITY);
+
+    private final Stripe[] stripes;
+    private volatile long capacity;     // Cells over all stripes
+    private final HashMap<File, DiskTier> diskTiers = new HashMap<>();
+    private final LongAdder numMemoryHits = new LongAdder();
+    private final LongAdder numDiskHits = new LongAdder();
+    private final LongAdder numMisses = new LongAdder();
+
+    public RouteCache(long capacity) {
+        this.capacity = capacity;
+        stripes = new Stripe[NUM_STRIPES];
+        for (int i = 0; i < NUM_STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public static RouteCache getShared() {
+        return shared;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    // Cells of routes held in memory, dropping the least recently used routes over it.
+    public void setCapacity(long capacity) {
+        this.capacity = capacity;
+        for (Stripe stripe : stripes) {
+            stripe.trim(capacity / NUM_STRIPES);
+        }
+    }
+
+    // Cached route for key (UNREACHABLE if there is none), or null if it is not cached. The disk tier in file is
+    // searched on a memory miss, unless file is null.
+    public int[] get(Key key, File file) {
+        Stripe stripe = stripes[key.hashCode() & (NUM_STRIPES - 1)];
+        int[] route = stripe.get(key);
+        if (route != null) {
+            numMemoryHits.increment();
+            return route == UNREACHABLE ? route : route.clone();
+        }
+        if (file != null) {
+            try {
+                route = getDiskTier(file, key.fingerprint).read(key);
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+            if (route != null) {
+                numDiskHits.increment();
+                stripe.put(key, route, capacity / NUM_STRIPES);
+                return route == UNREACHABLE ? route : route.clone();
+            }
+        }
+        numMisses.increment();
+        return null;
+    }
+
+    // Cache the route for key, null if it has none, also appending it to the disk tier in file unless file is null.
+    public void put(Key key, int[] route, File file) {
+        route = route == null ? UNREACHABLE : route.clone();
+        stripes[key.hashCode() & (NUM_STRIPES - 1)].put(key, route, capacity / NUM_STRIPES);
+        if (file != null) {
+            try {
+                getDiskTier(file, key.fingerprint).append(key, route);
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+
+    // Drop every route held in memory. Disk files are left in place.
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.trim(0);
+        }
+        synchronized (diskTiers) {
+            diskTiers.clear();
+        }
+    }
+
+    private DiskTier getDiskTier(File file, long fingerprint) {
+        synchronized (diskTiers) {
+            DiskTier diskTier = diskTiers.get(file);
+            if (diskTier == null) {
+                diskTier = new DiskTier(file, fingerprint);
+                diskTiers.put(file, diskTier);
+            }
+            return diskTier;
+        }
+    }
+
+    public long getNumMemoryHits() {
+        return numMemoryHits.sum();
+    }
+
+    public long getNumDiskHits() {
+        return numDiskHits.sum();
+    }
+
+    public long getNumMisses() {
+        return numMisses.sum();
+    }
+
+    // Fraction of lookups answered from either tier.
+    public double getHitRate() {
+        long hits = getNumMemoryHits() + getNumDiskHits();
+        return hits / (double) Math.max(hits + getNumMisses(), 1);
+    }
+
+    public void resetCounters() {
+        numMemoryHits.reset();
+        numDiskHits.reset();
+        numMisses.reset();
+    }
+
+    // Route endpoints and the surface searched. Kind is 0 for least cost routes, the number of pyramid levels for
+    // coarse-to-fine routes, or negative for routes searched within a corridor of a given width.
+    public static class Key {
+
+        private final int src;
+        private final int dest;
+        private final long fingerprint;     // Routing costs
+        private final long penaltyHash;     // Path sharing penalties over the routing costs, 0 for none
+        private final int kind;
+
+        public Key(int src, int dest, long fingerprint, long penaltyHash, int kind) {
+            this.src = src;
+            this.dest = dest;
+            this.fingerprint = fingerprint;
+            this.penaltyHash = penaltyHash;
+            this.kind = kind;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return src == key.src && dest == key.dest && fingerprint == key.fingerprint && penaltyHash == key.penaltyHash && kind == key.kind;
+        }
+
+        @Override
+        public int hashCode() {
+            long hash = (((long) src * 31 + dest) * 31 + kind) * 0x9E3779B97F4A7C15L ^ fingerprint ^ penaltyHash * 0xC4CEB9FE1A85EC53L;
+            return (int) (hash ^ (hash >>> 32) ^ (hash >>> 48));
+        }
+    }
+
+    // Routes in least recently used order, with the cells they hold.
+    private static class Stripe {
+
+        private final LinkedHashMap<Key, int[]> routes = new LinkedHashMap<>(64, .75f, true);
+        private long numCells;
+
+        public synchronized int[] get(Key key) {
+            return routes.get(key);
+        }
+
+        public synchronized void put(Key key, int[] route, long capacity) {
+            int[] old = routes.put(key, route);
+            if (old != null) {
+                numCells -= old.length + ENTRY_CELLS;
+            }
+            numCells += route.length + ENTRY_CELLS;
+            trim(capacity);
+        }
+
+        public synchronized void trim(long capacity) {
+            for (Iterator<Map.Entry<Key, int[]>> iter = routes.entrySet().iterator(); numCells > capacity && iter.hasNext();) {
+                numCells -= iter.next().getValue().length + ENTRY_CELLS;
+                iter.remove();
+            }
+        }
+    }
+
+    // Append only route file for one routing cost fingerprint, indexed in memory on first use. Records appended by
+    // other sessions after that are not indexed.
+    private static class DiskTier {
+
+        private final File file;
+        private final long fingerprint;
+        private HashMap<Key, Long> offsets;     // Record of each route in the file
+
+        public DiskTier(File file, long fingerprint) {
+            this.file = file;
+            this.fingerprint = fingerprint;
+        }
+
+        public synchronized int[] read(Key key) throws IOException {
+            index();
+            Long offset = offsets.get(key);
+            if (offset == null) {
+                return null;
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+                // The record must still be the one indexed.
+                long fileSize = channel.size();
+                ByteBuffer record = offset + RECORD_HEADER_SIZE <= fileSize ? read(channel, offset, RECORD_HEADER_SIZE) : null;
+                if (record == null || !key.equals(new Key(record.getInt(), record.getInt(), fingerprint, record.getLong(12), record.getInt(8)))) {
+                    offsets.remove(key);
+                    return null;
+                }
+                int routeLength = record.getInt(RECORD_HEADER_SIZE - 4);
+                if (routeLength < 0 || offset + RECORD_HEADER_SIZE + 4L * routeLength > fileSize) {
+                    offsets.remove(key);
+                    return null;
+                }
+                if (routeLength == 0) {
+                    return UNREACHABLE;
+                }
+                ByteBuffer buffer = read(channel, offset + RECORD_HEADER_SIZE, 4 * routeLength);
+                int[] route = new int[routeLength];
+                buffer.asIntBuffer().get(route);
+                return route;
+            }
+        }
+
+        // Append a record at the end of the file, whatever other sessions have appended since it was indexed.
+        public synchronized void append(Key key, int[] route) throws IOException {
+            index();
+            if (offsets.containsKey(key)) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + 4 * route.length).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(key.src);
+            buffer.putInt(key.dest);
+            buffer.putInt(key.kind);
+            buffer.putLong(key.penaltyHash);
+            buffer.putInt(route.length);
+            for (int cell : route) {
+                buffer.putInt(cell);
+            }
+            buffer.flip();
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel(); FileLock lock = channel.lock()) {
+                long offset = channel.size();
+                if (offset + buffer.remaining() > MAX_FILE_SIZE) {
+                    return;
+                }
+                long position = offset;
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                offsets.put(key, offset);
+            }
+        }
+
+        // Index the records of an existing file, or start a new one if it is missing, unreadable or for other costs.
+        // A partly written last record is dropped.
+        private void index() throws IOException {
+            if (offsets != null) {
+                return;
+            }
+            offsets = new HashMap<>();
+            if (file.exists()) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+                    if (indexRecords(channel)) {
+                        return;
+                    }
+                }
+            }
+
+            // Start the file under the lock, unless another session started it first.
+            file.getParentFile().mkdirs();
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel(); FileLock lock = channel.lock()) {
+                if (indexRecords(channel)) {
+                    return;
+                }
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC);
+                header.putInt(VERSION);
+                header.putLong(fingerprint);
+                header.flip();
+                raf.setLength(0);
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+            }
+        }
+
+        // Index the records in channel, or return false if its header is missing or for other costs.
+        private boolean indexRecords(FileChannel channel) throws IOException {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                return false;
+            }
+            ByteBuffer header = read(channel, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getLong() != fingerprint) {
+                return false;
+            }
+            long length = HEADER_SIZE;
+            while (length + RECORD_HEADER_SIZE <= fileSize) {
+                ByteBuffer record = read(channel, length, RECORD_HEADER_SIZE);
+                int src = record.getInt();
+                int dest = record.getInt();
+                int kind = record.getInt();
+                long penaltyHash = record.getLong();
+                long end = length + RECORD_HEADER_SIZE + 4L * record.getInt();
+                if (end > fileSize || end < length + RECORD_HEADER_SIZE) {
+                    break;
+                }
+                offsets.put(new Key(src, dest, fingerprint, penaltyHash, kind), length);
+                length = end;
+            }
+            return true;
+        }
+
+        private static ByteBuffer read(FileChannel channel, long position, int size) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Route cache file ended early");
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+}
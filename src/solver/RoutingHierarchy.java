@@ -0,0 +1,657 @@
+package solver;
+
+import dataStore.CostSurface;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import static utilities.Utilities.replaceFile;
+
+/**
+ * Contraction hierarchy over the routing cost surface. Cells are contracted
+ * one at a time, least important first, adding shortcut edges between their
+ * remaining neighbors wherever no other path is as cheap. A query then runs
+ * two small searches that only climb to more important cells, forward from
+ * the source and backward from the destination, and unpacks the shortcuts
+ * on the best meeting path back into cells.
+ *
+ * Layout of the persisted form (little-endian): a 32 byte header (magic,
+ * version, cell count, cost fingerprint, upward and downward edge counts)
+ * followed by cell ranks, then for upward and downward edges in turn the
+ * per cell edge offsets, edge ends, costs and shortcut middle cells.
+ *
+ * @author yaw
+ */
+public class RoutingHierarchy {
+
+    public static final String FILE_NAME = "RoutingHierarchy.bin";
+
+    private static final int MAGIC = 0x53435248;    // "SCRH"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    // Cells settled before a witness search gives up and counts or adds the shortcut.
+    private static final int SIMULATION_SETTLE_LIMIT = 40;
+    private static final int CONTRACTION_SETTLE_LIMIT = 400;
+
+    private final int numCells;
+    private final long fingerprint;
+    private final int[] rank;
+
+    // Edges to more important cells (upward) and edges from more important cells (downward), by cell.
+    private final int[] upStart;
+    private final int[] upTarget;
+    private final double[] upCost;
+    private final int[] upMiddle;   // Contracted cell a shortcut skips, -1 for surface edges
+    private final int[] downStart;
+    private final int[] downSource;
+    private final double[] downCost;
+    private final int[] downMiddle;
+
+    private RoutingHierarchy(int numCells, long fingerprint, int[] rank, int[] upStart, int[] upTarget, double[] upCost, int[] upMiddle, int[] downStart, int[] downSource, double[] downCost, int[] downMiddle) {
+        this.numCells = numCells;
+        this.fingerprint = fingerprint;
+        this.rank = rank;
+        this.upStart = upStart;
+        this.upTarget = upTarget;
+        this.upCost = upCost;
+        this.upMiddle = upMiddle;
+        this.downStart = downStart;
+        this.downSource = downSource;
+        this.downCost = downCost;
+        this.downMiddle = downMiddle;
+    }
+
+    public int getNumCells() {
+        return numCells;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public int getNumEdges() {
+        return upTarget.length + downSource.length;
+    }
+
+    // Hash of every edge cost, to tell whether a persisted hierarchy still matches the surface.
+    public static long fingerprint(CostSurface costs, int numCells) {
+        long hash = numCells;
+        for (int cell = 0; cell < numCells; cell++) {
+            for (int neighbor = 0; neighbor < 8; neighbor++) {
+                hash = 31 * hash + Double.doubleToLongBits(costs.getCost(cell, neighbor));
+            }
+        }
+        return hash;
+    }
+
+    // Contract every cell of the surface.
+    public static RoutingHierarchy build(CostSurface costs, int width, int height) {
+        return new Builder(costs, width, width * height + 1).build();
+    }
+
+    // Least cost path from src to dest (null if unreachable), using the two workspaces for the upward searches. Settled cells are added to numSettled.
+    public int[] shortestPath(int src, int dest, SearchWorkspace forward, SearchWorkspace reverse, LongAdder numSettled) {
+        if (src == dest) {
+            return new int[]{src};
+        }
+        forward.reset();
+        reverse.reset();
+        IndexedHeap forwardHeap = forward.getHeap();
+        IndexedHeap reverseHeap = reverse.getHeap();
+        forward.reach(src, 0, -1);
+        forwardHeap.update(src, 0);
+        reverse.reach(dest, 0, -1);
+        reverseHeap.update(dest, 0);
+        double bestCost = Double.MAX_VALUE;
+        int meetingCell = -1;
+        int settled = 0;
+
+        // Each side stops once its next cell costs at least the best path found, as the other side may still improve it.
+        while (true) {
+            boolean forwardOpen = !forwardHeap.isEmpty() && forwardHeap.peekKey() < bestCost;
+            boolean reverseOpen = !reverseHeap.isEmpty() && reverseHeap.peekKey() < bestCost;
+            if (!forwardOpen && !reverseOpen) {
+                break;
+            }
+            if (forwardOpen && (!reverseOpen || forwardHeap.size() <= reverseHeap.size())) {
+                int u = forwardHeap.poll();
+                forward.settle(u);
+                settled++;
+                double uCost = forward.getCost(u);
+                if (reverse.getCost(u) < Double.MAX_VALUE && uCost + reverse.getCost(u) < bestCost) {
+                    bestCost = uCost + reverse.getCost(u);
+                    meetingCell = u;
+                }
+                for (int edge = upStart[u]; edge < upStart[u + 1]; edge++) {
+                    int v = upTarget[edge];
+                    double altCost = uCost + upCost[edge];
+                    if (!forward.isSettled(v) && altCost < forward.getCost(v)) {
+                        forward.reach(v, altCost, u);
+                        forwardHeap.update(v, altCost);
+                    }
+                }
+            } else {
+                int u = reverseHeap.poll();
+                reverse.settle(u);
+                settled++;
+                double uCost = reverse.getCost(u);
+                if (forward.getCost(u) < Double.MAX_VALUE && uCost + forward.getCost(u) < bestCost) {
+                    bestCost = uCost + forward.getCost(u);
+                    meetingCell = u;
+                }
+                for (int edge = downStart[u]; edge < downStart[u + 1]; edge++) {
+                    int v = downSource[edge];
+                    double altCost = uCost + downCost[edge];
+                    if (!reverse.isSettled(v) && altCost < reverse.getCost(v)) {
+                        reverse.reach(v, altCost, u);
+                        reverseHeap.update(v, altCost);
+                    }
+                }
+            }
+        }
+        numSettled.add(settled);
+        if (meetingCell < 0) {
+            return null;
+        }
+
+        // Hierarchy path: up from src to the meeting cell, then down to dest.
+        int[] upPath = forward.pathTo(src, meetingCell);
+        int length = upPath.length;
+        for (int cell = meetingCell; cell != dest; cell = reverse.getPrevious(cell)) {
+            length++;
+        }
+        int[] hierarchyPath = Arrays.copyOf(upPath, length);
+        for (int cell = meetingCell, i = upPath.length; cell != dest; i++) {
+            cell = reverse.getPrevious(cell);
+            hierarchyPath[i] = cell;
+        }
+        return unpack(hierarchyPath);
+    }
+
+    // Replace each shortcut on a hierarchy path with the cells it skips.
+    private int[] unpack(int[] hierarchyPath) {
+        int[] path = new int[Math.max(16, hierarchyPath.length)];
+        int length = 0;
+        path[length++] = hierarchyPath[0];
+        int[] pending = new int[16];
+        for (int i = 1; i < hierarchyPath.length; i++) {
+            int current = hierarchyPath[i - 1];
+            int numPending = 0;
+            pending[numPending++] = hierarchyPath[i];
+            while (numPending > 0) {
+                int next = pending[numPending - 1];
+                int middle = middleCell(current, next);
+                if (middle < 0) {
+                    if (length == path.length) {
+                        path = Arrays.copyOf(path, length * 2);
+                    }
+                    path[length++] = next;
+                    current = next;
+                    numPending--;
+                } else {
+                    if (numPending == pending.length) {
+                        pending = Arrays.copyOf(pending, numPending * 2);
+                    }
+                    pending[numPending++] = middle;
+                }
+            }
+        }
+        return Arrays.copyOf(path, length);
+    }
+
+    // Middle cell of the edge from cell1 to cell2, -1 for a surface edge. The edge is stored with its less important end.
+    private int middleCell(int cell1, int cell2) {
+        if (rank[cell1] < rank[cell2]) {
+            for (int edge = upStart[cell1]; edge < upStart[cell1 + 1]; edge++) {
+                if (upTarget[edge] == cell2) {
+                    return upMiddle[edge];
+                }
+            }
+        } else {
+            for (int edge = downStart[cell2]; edge < downStart[cell2 + 1]; edge++) {
+                if (downSource[edge] == cell1) {
+                    return downMiddle[edge];
+                }
+            }
+        }
+        throw new IllegalStateException("No hierarchy edge from " + cell1 + " to " + cell2);
+    }
+
+    // Write the hierarchy beside file and rename it over file once whole, so a process reading the old file never sees
+    // a partly written one.
+    public void write(File file) throws IOException {
+        File tempFile = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            writeArrays(tempFile);
+            replaceFile(tempFile, file);
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    private void writeArrays(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(numCells);
+            header.putLong(fingerprint);
+            header.putInt(upTarget.length);
+            header.putInt(downSource.length);
+            header.rewind();
+            channel.write(header);
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(8 * 65536).order(ByteOrder.LITTLE_ENDIAN);
+            writeInts(channel, buffer, rank);
+            writeInts(channel, buffer, upStart);
+            writeInts(channel, buffer, upTarget);
+            writeDoubles(channel, buffer, upCost);
+            writeInts(channel, buffer, upMiddle);
+            writeInts(channel, buffer, downStart);
+            writeInts(channel, buffer, downSource);
+            writeDoubles(channel, buffer, downCost);
+            writeInts(channel, buffer, downMiddle);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    // Read a persisted hierarchy, or return null if it was built for a different surface.
+    public static RoutingHierarchy read(File file, int numCells, long fingerprint) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                throw new IOException(file.getName() + " is not a routing hierarchy file");
+            }
+            if (header.getInt() != VERSION || header.getInt() != numCells || header.getLong() != fingerprint) {
+                return null;
+            }
+            int numUp = header.getInt();
+            int numDown = header.getInt();
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(8 * 65536).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+            int[] rank = readInts(channel, buffer, numCells);
+            int[] upStart = readInts(channel, buffer, numCells + 1);
+            int[] upTarget = readInts(channel, buffer, numUp);
+            double[] upCost = readDoubles(channel, buffer, numUp);
+            int[] upMiddle = readInts(channel, buffer, numUp);
+            int[] downStart = readInts(channel, buffer, numCells + 1);
+            int[] downSource = readInts(channel, buffer, numDown);
+            double[] downCost = readDoubles(channel, buffer, numDown);
+            int[] downMiddle = readInts(channel, buffer, numDown);
+            return new RoutingHierarchy(numCells, fingerprint, rank, upStart, upTarget, upCost, upMiddle, downStart, downSource, downCost, downMiddle);
+        }
+    }
+
+    private static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        for (int value : values) {
+            if (buffer.remaining() < 4) {
+                flush(channel, buffer);
+            }
+            buffer.putInt(value);
+        }
+    }
+
+    private static void writeDoubles(FileChannel channel, ByteBuffer buffer, double[] values) throws IOException {
+        for (double value : values) {
+            if (buffer.remaining() < 8) {
+                flush(channel, buffer);
+            }
+            buffer.putDouble(value);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static int[] readInts(FileChannel channel, ByteBuffer buffer, int count) throws IOException {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (buffer.remaining() < 4) {
+                fill(channel, buffer, 4);
+            }
+            values[i] = buffer.getInt();
+        }
+        return values;
+    }
+
+    private static double[] readDoubles(FileChannel channel, ByteBuffer buffer, int count) throws IOException {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            if (buffer.remaining() < 8) {
+                fill(channel, buffer, 8);
+            }
+            values[i] = buffer.getDouble();
+        }
+        return values;
+    }
+
+    private static void fill(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        buffer.compact();
+        while (buffer.position() < needed) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Routing hierarchy file is truncated");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Contracts cells in order of edge difference (shortcuts added less edges
+     * removed), contracted neighbors and depth. Priorities are recomputed
+     * lazily when a cell reaches the front of the queue, and the cell goes
+     * back in the queue if it is no longer the least important.
+     */
+    private static class Builder {
+
+        private final int numCells;
+        private final int[] rank;
+        private final int[] level;
+        private final int[] contractedNeighbors;
+        private final boolean[] contracted;
+        private final int[] lastCounted;    // Contracted cell a neighbor was last counted for
+
+        // Remaining graph, with growable edge lists per cell.
+        private final int[][] outCells;
+        private final double[][] outCosts;
+        private final int[][] outMiddles;
+        private final int[] outDegree;
+        private final int[][] inCells;
+        private final double[][] inCosts;
+        private final int[][] inMiddles;
+        private final int[] inDegree;
+
+        // Upward and downward edges of contracted cells, in contraction order.
+        private final int[] upFirst;
+        private final int[] downFirst;
+        private int[] upTarget = new int[1024];
+        private double[] upCost = new double[1024];
+        private int[] upMiddle = new int[1024];
+        private int numUp;
+        private int[] downSource = new int[1024];
+        private double[] downCost = new double[1024];
+        private int[] downMiddle = new int[1024];
+        private int numDown;
+
+        private final SearchWorkspace witness;
+        private final long fingerprint;
+
+        public Builder(CostSurface costs, int width, int numCells) {
+            this.numCells = numCells;
+            rank = new int[numCells];
+            level = new int[numCells];
+            contractedNeighbors = new int[numCells];
+            contracted = new boolean[numCells];
+            lastCounted = new int[numCells];
+            outCells = new int[numCells][];
+            outCosts = new double[numCells][];
+            outMiddles = new int[numCells][];
+            outDegree = new int[numCells];
+            inCells = new int[numCells][];
+            inCosts = new double[numCells][];
+            inMiddles = new int[numCells][];
+            inDegree = new int[numCells];
+            upFirst = new int[numCells];
+            downFirst = new int[numCells];
+            witness = new SearchWorkspace(numCells);
+            fingerprint = fingerprint(costs, numCells);
+
+            int[] neighborOffsets = {-width - 1, -width, -width + 1, 1, width + 1, width, width - 1, -1};
+            for (int cell = 1; cell < numCells; cell++) {
+                for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                    int neighbor = cell + neighborOffsets[neighborNum];
+                    double cost = costs.getCost(cell, neighborNum);
+                    if (neighbor >= 1 && neighbor < numCells && cost < Double.MAX_VALUE) {
+                        addEdge(cell, neighbor, cost, -1);
+                    }
+                }
+            }
+        }
+
+        public RoutingHierarchy build() {
+            long startTime = System.nanoTime();
+            IndexedHeap queue = new IndexedHeap(numCells);
+            for (int cell = 1; cell < numCells; cell++) {
+                queue.update(cell, priority(cell));
+            }
+
+            int nextRank = 1;
+            while (!queue.isEmpty()) {
+                int cell = queue.poll();
+                double priority = priority(cell);
+                if (!queue.isEmpty() && priority > queue.peekKey()) {
+                    queue.update(cell, priority);
+                    continue;
+                }
+                rank[cell] = nextRank++;
+                contract(cell, false);
+
+                for (int i = 0; i < outDegree[cell]; i++) {
+                    countContractedNeighbor(cell, outCells[cell][i]);
+                }
+                for (int i = 0; i < inDegree[cell]; i++) {
+                    countContractedNeighbor(cell, inCells[cell][i]);
+                }
+                outCells[cell] = null;
+                outCosts[cell] = null;
+                outMiddles[cell] = null;
+                inCells[cell] = null;
+                inCosts[cell] = null;
+                inMiddles[cell] = null;
+            }
+
+            // Gather each cell's edges into contiguous ranges.
+            int[] upStart = new int[numCells + 1];
+            int[] downStart = new int[numCells + 1];
+            int[] upCount = new int[numCells];
+            int[] downCount = new int[numCells];
+            int[] order = new int[numCells];
+            for (int cell = 1; cell < numCells; cell++) {
+                order[rank[cell]] = cell;
+            }
+            for (int r = 1; r < numCells; r++) {
+                int cell = order[r];
+                int upEnd = r + 1 < numCells ? upFirst[order[r + 1]] : numUp;
+                int downEnd = r + 1 < numCells ? downFirst[order[r + 1]] : numDown;
+                upCount[cell] = upEnd - upFirst[cell];
+                downCount[cell] = downEnd - downFirst[cell];
+            }
+            for (int cell = 0; cell < numCells; cell++) {
+                upStart[cell + 1] = upStart[cell] + upCount[cell];
+                downStart[cell + 1] = downStart[cell] + downCount[cell];
+            }
+            int[] sortedUpTarget = new int[numUp];
+            double[] sortedUpCost = new double[numUp];
+            int[] sortedUpMiddle = new int[numUp];
+            int[] sortedDownSource = new int[numDown];
+            double[] sortedDownCost = new double[numDown];
+            int[] sortedDownMiddle = new int[numDown];
+            for (int cell = 1; cell < numCells; cell++) {
+                System.arraycopy(upTarget, upFirst[cell], sortedUpTarget, upStart[cell], upCount[cell]);
+                System.arraycopy(upCost, upFirst[cell], sortedUpCost, upStart[cell], upCount[cell]);
+                System.arraycopy(upMiddle, upFirst[cell], sortedUpMiddle, upStart[cell], upCount[cell]);
+                System.arraycopy(downSource, downFirst[cell], sortedDownSource, downStart[cell], downCount[cell]);
+                System.arraycopy(downCost, downFirst[cell], sortedDownCost, downStart[cell], downCount[cell]);
+                System.arraycopy(downMiddle, downFirst[cell], sortedDownMiddle, downStart[cell], downCount[cell]);
+            }
+
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            System.out.println("Built routing hierarchy over " + (numCells - 1) + " cells with " + (numUp + numDown) + " edges in " + String.format("%.2f", seconds) + " s.");
+            return new RoutingHierarchy(numCells, fingerprint, rank, upStart, sortedUpTarget, sortedUpCost, sortedUpMiddle, downStart, sortedDownSource, sortedDownCost, sortedDownMiddle);
+        }
+
+        private void countContractedNeighbor(int cell, int neighbor) {
+            if (lastCounted[neighbor] != cell) {
+                lastCounted[neighbor] = cell;
+                contractedNeighbors[neighbor]++;
+                level[neighbor] = Math.max(level[neighbor], level[cell] + 1);
+            }
+        }
+
+        private double priority(int cell) {
+            int shortcuts = contract(cell, true);
+            return 2 * (shortcuts - outDegree[cell] - inDegree[cell]) + contractedNeighbors[cell] + level[cell];
+        }
+
+        // Add shortcuts around cell wherever no witness path avoids it, returning the number needed. A simulation adds nothing.
+        private int contract(int cell, boolean simulate) {
+            if (!simulate) {
+                // Remaining neighbors are more important, so cell's edges are its hierarchy edges.
+                upFirst[cell] = numUp;
+                for (int i = 0; i < outDegree[cell]; i++) {
+                    addUpEdge(outCells[cell][i], outCosts[cell][i], outMiddles[cell][i]);
+                }
+                downFirst[cell] = numDown;
+                for (int i = 0; i < inDegree[cell]; i++) {
+                    addDownEdge(inCells[cell][i], inCosts[cell][i], inMiddles[cell][i]);
+                }
+                contracted[cell] = true;
+                for (int i = 0; i < outDegree[cell]; i++) {
+                    removeEdge(inCells, inCosts, inMiddles, inDegree, outCells[cell][i], cell);
+                }
+                for (int i = 0; i < inDegree[cell]; i++) {
+                    removeEdge(outCells, outCosts, outMiddles, outDegree, inCells[cell][i], cell);
+                }
+            }
+
+            int shortcuts = 0;
+            double maxOutCost = 0;
+            for (int j = 0; j < outDegree[cell]; j++) {
+                maxOutCost = Math.max(maxOutCost, outCosts[cell][j]);
+            }
+            for (int i = 0; i < inDegree[cell]; i++) {
+                int u = inCells[cell][i];
+                double inCost = inCosts[cell][i];
+                witnessSearch(u, cell, inCost + maxOutCost, simulate ? SIMULATION_SETTLE_LIMIT : CONTRACTION_SETTLE_LIMIT);
+                for (int j = 0; j < outDegree[cell]; j++) {
+                    int w = outCells[cell][j];
+                    double viaCost = inCost + outCosts[cell][j];
+                    if (w != u && witness.getCost(w) > viaCost) {
+                        shortcuts++;
+                        if (!simulate) {
+                            addEdge(u, w, viaCost, cell);
+                        }
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        // Bounded search from src through remaining cells other than excluded, until excluded's out neighbors are settled.
+        private void witnessSearch(int src, int excluded, double maxCost, int settleLimit) {
+            witness.reset();
+            int remaining = 0;
+            for (int j = 0; j < outDegree[excluded]; j++) {
+                witness.markTarget(outCells[excluded][j]);
+                remaining++;
+            }
+            IndexedHeap heap = witness.getHeap();
+            witness.reach(src, 0, -1);
+            heap.update(src, 0);
+            int settled = 0;
+            while (!heap.isEmpty() && settled < settleLimit) {
+                int u = heap.poll();
+                witness.settle(u);
+                settled++;
+                double uCost = witness.getCost(u);
+                if (uCost > maxCost || (witness.isTarget(u) && --remaining == 0)) {
+                    break;
+                }
+                for (int i = 0; i < outDegree[u]; i++) {
+                    int v = outCells[u][i];
+                    double altCost = uCost + outCosts[u][i];
+                    if (v != excluded && !contracted[v] && !witness.isSettled(v) && altCost < witness.getCost(v)) {
+                        witness.reach(v, altCost, u);
+                        heap.update(v, altCost);
+                    }
+                }
+            }
+        }
+
+        // Add an edge to the remaining graph, or lower an existing edge between the same cells.
+        private void addEdge(int from, int to, double cost, int middle) {
+            for (int i = 0; i < outDegree[from]; i++) {
+                if (outCells[from][i] == to) {
+                    if (cost < outCosts[from][i]) {
+                        outCosts[from][i] = cost;
+                        outMiddles[from][i] = middle;
+                        for (int j = 0; j < inDegree[to]; j++) {
+                            if (inCells[to][j] == from) {
+                                inCosts[to][j] = cost;
+                                inMiddles[to][j] = middle;
+                            }
+                        }
+                    }
+                    return;
+                }
+            }
+            append(outCells, outCosts, outMiddles, outDegree, from, to, cost, middle);
+            append(inCells, inCosts, inMiddles, inDegree, to, from, cost, middle);
+        }
+
+        private static void append(int[][] cells, double[][] costs, int[][] middles, int[] degree, int cell, int other, double cost, int middle) {
+            if (cells[cell] == null) {
+                cells[cell] = new int[8];
+                costs[cell] = new double[8];
+                middles[cell] = new int[8];
+            } else if (degree[cell] == cells[cell].length) {
+                cells[cell] = Arrays.copyOf(cells[cell], degree[cell] * 2);
+                costs[cell] = Arrays.copyOf(costs[cell], degree[cell] * 2);
+                middles[cell] = Arrays.copyOf(middles[cell], degree[cell] * 2);
+            }
+            cells[cell][degree[cell]] = other;
+            costs[cell][degree[cell]] = cost;
+            middles[cell][degree[cell]] = middle;
+            degree[cell]++;
+        }
+
+        private static void removeEdge(int[][] cells, double[][] costs, int[][] middles, int[] degree, int cell, int other) {
+            for (int i = 0; i < degree[cell]; i++) {
+                if (cells[cell][i] == other) {
+                    int last = --degree[cell];
+                    cells[cell][i] = cells[cell][last];
+                    costs[cell][i] = costs[cell][last];
+                    middles[cell][i] = middles[cell][last];
+                    return;
+                }
+            }
+        }
+
+        private void addUpEdge(int target, double cost, int middle) {
+            if (numUp == upTarget.length) {
+                upTarget = Arrays.copyOf(upTarget, numUp * 2);
+                upCost = Arrays.copyOf(upCost, numUp * 2);
+                upMiddle = Arrays.copyOf(upMiddle, numUp * 2);
+            }
+            upTarget[numUp] = target;
+            upCost[numUp] = cost;
+            upMiddle[numUp++] = middle;
+        }
+
+        private void addDownEdge(int source, double cost, int middle) {
+            if (numDown == downSource.length) {
+                downSource = Arrays.copyOf(downSource, numDown * 2);
+                downCost = Arrays.copyOf(downCost, numDown * 2);
+                downMiddle = Arrays.copyOf(downMiddle, numDown * 2);
+            }
+            downSource[numDown] = source;
+            downCost[numDown] = cost;
+            downMiddle[numDown++] = middle;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package solver;
+
+/**
+ * Priority queue of cell numbers keyed by cost, as used by cost surface
+ * searches. Updating a queued cell only ever lowers its key. A queue may
+ * return a cell again after a lower key for it was polled, so searches skip
+ * cells that are already settled.
+ *
+ * @author yaw
+ */
+public interface SearchQueue {
+
+    public boolean isEmpty();
+
+    public int size();
+
+    // Queue cell, or lower its key if it is already queued with a higher key.
+    public void update(int cell, double key);
+
+    // Lowest key in the queue. Never above the key of the next cell polled.
+    public double peekKey();
+
+    // Remove and return the cell with the lowest key.
+    public int poll();
+
+    // Empty the queue. Only queued cells are touched.
+    public void clear();
+}
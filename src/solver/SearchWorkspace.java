@@ -0,0 +1,111 @@
+package solver;
+
+import java.util.Arrays;
+
+/**
+ * Per-thread scratch arrays for cost surface searches. Entries are only
+ * valid when their stamp matches the current generation, so starting a new
+ * search is O(1) instead of refilling an array entry for every cell.
+ *
+ * @author yaw
+ */
+public class SearchWorkspace {
+
+    private final int numCells;
+    private final double[] costs;
+    private final int[] previous;
+    private final int[] reached;    // Generation in which a cell's cost was set
+    private final int[] settled;    // Generation in which a cell was settled
+    private final int[] targets;    // Generation in which a cell was marked as a target
+    private final IndexedHeap heap;
+    private BucketQueue bucketQueue;    // Created on first use, overflowing into heap
+    private int generation;
+
+    public SearchWorkspace(int numCells) {
+        this.numCells = numCells;
+        costs = new double[numCells];
+        previous = new int[numCells];
+        reached = new int[numCells];
+        settled = new int[numCells];
+        targets = new int[numCells];
+        heap = new IndexedHeap(numCells);
+    }
+
+    // Start a new search.
+    public void reset() {
+        heap.clear();
+        if (bucketQueue != null) {
+            bucketQueue.clear();
+        }
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(reached, 0);
+            Arrays.fill(settled, 0);
+            Arrays.fill(targets, 0);
+            generation = 1;
+        }
+    }
+
+    public int getNumCells() {
+        return numCells;
+    }
+
+    public IndexedHeap getHeap() {
+        return heap;
+    }
+
+    public BucketQueue getBucketQueue() {
+        if (bucketQueue == null) {
+            bucketQueue = new BucketQueue(heap);     // Only one of the two queues is used in a search
+        }
+        return bucketQueue;
+    }
+
+    // Best known cost to cell in this search, Double.MAX_VALUE if not reached.
+    public double getCost(int cell) {
+        return reached[cell] == generation ? costs[cell] : Double.MAX_VALUE;
+    }
+
+    // Cell before cell on its best known path, -1 if none.
+    public int getPrevious(int cell) {
+        return reached[cell] == generation ? previous[cell] : -1;
+    }
+
+    public void reach(int cell, double cost, int previousCell) {
+        reached[cell] = generation;
+        costs[cell] = cost;
+        previous[cell] = previousCell;
+    }
+
+    public boolean isSettled(int cell) {
+        return settled[cell] == generation;
+    }
+
+    public void settle(int cell) {
+        settled[cell] = generation;
+    }
+
+    public boolean isTarget(int cell) {
+        return targets[cell] == generation;
+    }
+
+    public void markTarget(int cell) {
+        targets[cell] = generation;
+    }
+
+    // Cells from src to cell along previous links, or null if cell was not reached.
+    public int[] pathTo(int src, int cell) {
+        if (cell != src && getPrevious(cell) < 0) {
+            return null;
+        }
+        int length = 1;
+        for (int node = cell; node != src; node = previous[node]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int node = cell, i = length - 1; i >= 0; node = previous[node], i--) {
+            path[i] = node;
+        }
+        return path;
+    }
+}
@@ -1,15 +1,23 @@
 package solver;
 
+import dataStore.CostSurface;
 import dataStore.DataStorer;
 import dataStore.Edge;
+import dataStore.Route;
+import dataStore.RoutingComponents;
 import dataStore.Source;
 import dataStore.Sink;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.PriorityQueue;
+import java.util.LinkedHashMap;
+import java.util.PrimitiveIterator;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 import javafx.scene.control.TextArea;
 import static utilities.Utilities.*;
 
@@ -21,9 +29,12 @@ public class Solver {
 
     private DataStorer data;
     private TextArea messenger;
+    private CostSurfaceSearch search;
+    private LinkedHashMap<Edge, int[]> delaunayPairRoutes;  // Route of each Delaunay pair from the last candidate graph generation
 
     public Solver(DataStorer data) {
         this.data = data;
+        search = new CostSurfaceSearch(data);
     }
 
     // Find shortest path between each source/sink pair through cost surface
@@ -81,10 +92,26 @@ public class Solver {
             }
             messenger.setText(message);
         } else {
-            for (int nodeNum = 0; nodeNum < sourcesAndSinks.length - 1; nodeNum++) {
-                int[] destinations = new int[sourcesAndSinks.length - nodeNum - 1];
-                System.arraycopy(sourcesAndSinks, nodeNum + 1, destinations, 0, destinations.length);
-                Object[] sourcePathsAndCosts = dijkstra(sourcesAndSinks[nodeNum], destinations, .9999999);
+            int[] srcs = Arrays.copyOf(sourcesAndSinks, Math.max(sourcesAndSinks.length - 1, 0));
+            int[][] destinations = new int[srcs.length][];
+            for (int nodeNum = 0; nodeNum < srcs.length; nodeNum++) {
+                destinations[nodeNum] = Arrays.copyOfRange(sourcesAndSinks, nodeNum + 1, sourcesAndSinks.length);
+            }
+
+            // Pairs in different routing components are left unreachable by the searches.
+            RoutingComponents components = data.getRoutingComponents();
+            int numUnreachable = 0;
+            for (int nodeNum = 0; nodeNum < srcs.length && components != null; nodeNum++) {
+                for (int dest : destinations[nodeNum]) {
+                    if (!components.connected(srcs[nodeNum], dest)) {
+                        numUnreachable++;
+                    }
+                }
+            }
+            if (numUnreachable > 0) {
+                System.out.println(numUnreachable + " source/sink pairs are in separate routing components and were not routed.");
+            }
+            for (Object[] sourcePathsAndCosts : dijkstraInRounds(srcs, destinations, .9999999, data.getAllPairsSearchMode())) {
                 allPathsList.addAll((ArrayList<int[]>) sourcePathsAndCosts[0]);
                 allPathCostsList.addAll((ArrayList<Double>) sourcePathsAndCosts[1]);
             }
@@ -105,6 +132,116 @@ public class Solver {
     public Object[] generateDelaunayCandidateGraph() {
         //data.generateDelaunayPairs();
         HashSet<Edge> delaunayPairs = data.getDelaunayPairs();
+
+        // Route every pair, keeping each pair's route for later repairs.
+        long startTime = System.nanoTime();
+        search.resetCounters();
+        HashMap<Integer, int[]> pairsByVertex = groupPairsByVertex(delaunayPairs);
+        int[] srcs = new int[pairsByVertex.size()];
+        int[][] destinations = new int[pairsByVertex.size()][];
+        int groupNum = 0;
+        for (int vertex : pairsByVertex.keySet()) {
+            srcs[groupNum] = vertex;
+            destinations[groupNum++] = pairsByVertex.get(vertex);
+        }
+        delaunayPairRoutes = new LinkedHashMap<>();
+        Object[][] pathsAndCosts = dijkstraInRounds(srcs, destinations, .9999999, data.getDelaunaySearchMode());
+        for (groupNum = 0; groupNum < srcs.length; groupNum++) {
+            ArrayList<int[]> paths = (ArrayList<int[]>) pathsAndCosts[groupNum][0];
+            for (int i = 0; i < paths.size(); i++) {
+                delaunayPairRoutes.put(new Edge(srcs[groupNum], destinations[groupNum][i]), paths.get(i));
+            }
+        }
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.println("Routed " + delaunayPairs.size() + " Delaunay pairs with " + search.getNumSearches() + " searches in " + String.format("%.2f", seconds) + " s (" + String.format("%.1f", delaunayPairs.size() / seconds) + " pairs/s, " + search.getNumCellsSettled() / Math.max(search.getNumSearches(), 1) + " cells settled per search, " + search.getNumCachedRoutes() + " routes cached).");
+        if (data.getCorridorWidth() > 0) {
+            System.out.println("Widened " + search.getNumCorridorRetries() + " search corridors.");
+        }
+        return buildCandidateGraph(delaunayPairRoutes.values());
+    }
+
+    // Re-route only the Delaunay pairs whose least cost routes may have changed with routing cost edits. editedCosts holds
+    // each edited edge's routing cost before the edits, keyed by cell * 8 + neighborNum. Other pair routes are kept, and
+    // their path sharing penalties are applied, from a clean overlay, before the affected pairs are routed again.
+    public Object[] repairDelaunayCandidateGraph(HashMap<Long, Double> editedCosts) {
+        long startTime = System.nanoTime();
+        CostSurface routingCosts = data.getRoutingCosts();
+
+        // Raised edges invalidate the routes using them. Lowered edges may open a cheaper route.
+        HashSet<Long> raisedEdges = new HashSet<>();
+        ArrayList<Long> loweredEdges = new ArrayList<>();
+        for (long key : editedCosts.keySet()) {
+            double cost = routingCosts.getCost((int) (key / 8), (int) (key % 8));
+            if (cost > editedCosts.get(key)) {
+                raisedEdges.add(key);
+            } else if (cost < editedCosts.get(key)) {
+                loweredEdges.add(key);
+            }
+        }
+        double minCostPerStep = routingCosts.getMinCostPerStepLength() * (1 - 1e-9);
+
+        ArrayList<Edge> affectedPairs = new ArrayList<>();
+        for (Edge pair : delaunayPairRoutes.keySet()) {
+            int[] route = delaunayPairRoutes.get(pair);
+            boolean affected = route == null || routeMayChange(route, raisedEdges, loweredEdges, routingCosts, minCostPerStep);
+            if (affected) {
+                affectedPairs.add(pair);
+            } else {
+                for (int i = 0; i < route.length - 1; i++) {
+                    data.updateModifiedEdgeRoutingCost(route[i], route[i + 1], .9999999);
+                    data.updateModifiedEdgeRoutingCost(route[i + 1], route[i], .9999999);
+                }
+            }
+        }
+
+        for (Edge pair : affectedPairs) {
+            int[][] routes = search.shortestPaths(pair.v1, new int[]{pair.v2}, data.getModifiedRoutingCosts(), data.getDelaunaySearchMode());
+            modifyRouteCosts(routes, .9999999);
+            delaunayPairRoutes.put(pair, routes[0]);
+        }
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.println("Repaired " + affectedPairs.size() + " of " + delaunayPairRoutes.size() + " Delaunay pair routes after " + editedCosts.size() + " edge cost edits in " + String.format("%.2f", seconds) + " s.");
+        return buildCandidateGraph(delaunayPairRoutes.values());
+    }
+
+    // Whether route uses a raised edge, or a lower bound on routes through a lowered edge is below its cost.
+    private boolean routeMayChange(int[] route, HashSet<Long> raisedEdges, ArrayList<Long> loweredEdges, CostSurface routingCosts, double minCostPerStep) {
+        int width = data.getWidth();
+        double routeCost = 0;
+        for (int i = 0; i < route.length - 1; i++) {
+            int neighborNum = data.getNeighborNum(route[i], route[i + 1]);
+            if (raisedEdges.contains((long) route[i] * 8 + neighborNum)) {
+                return true;
+            }
+            routeCost += routingCosts.getCost(route[i], neighborNum);
+        }
+
+        int[] neighborOffsets = {-width - 1, -width, -width + 1, 1, width + 1, width, width - 1, -1};
+        int srcX = (route[0] - 1) % width;
+        int srcY = (route[0] - 1) / width;
+        int destX = (route[route.length - 1] - 1) % width;
+        int destY = (route[route.length - 1] - 1) / width;
+        for (long key : loweredEdges) {
+            int cell = (int) (key / 8);
+            int neighborNum = (int) (key % 8);
+            double bound = minCostPerStep * CostSurfaceSearch.octileDistance(cell, srcX, srcY, width)
+                    + routingCosts.getCost(cell, neighborNum)
+                    + minCostPerStep * CostSurfaceSearch.octileDistance(cell + neighborOffsets[neighborNum], destX, destY, width);
+            if (bound < routeCost) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean hasDelaunayPairRoutes() {
+        return delaunayPairRoutes != null;
+    }
+
+    // Merge routes into a graph whose vertices are sources, sinks and junctions, with each edge's route and cost.
+    private Object[] buildCandidateGraph(Collection<int[]> routes) {
         HashMap<Edge, Double> graphEdgeCosts = new HashMap<>();
         HashMap<Edge, int[]> graphEdgeRoutes = new HashMap<>();
         HashMap<Integer, HashSet<Integer>> vertexNeighbors = new HashMap<>();    // Neighbors of a given vertex
@@ -112,24 +249,9 @@ public class Solver {
         HashSet<Integer> degree2Vertices = new HashSet<>(); // Non-source/sink vertices with degree 2
 
         // Populate initial costs, routes, and neighbors
-        for (Edge pair : delaunayPairs) {
-            int pair2List[] = {pair.v2};
-            int[] path = ((ArrayList<int[]>) (dijkstra(pair.v1, pair2List, .9999999)[0])).get(0);
-
-            for (int i = 0; i < path.length - 1; i++) {
-                Edge e = new Edge(path[i], path[i + 1]);
-                graphEdgeCosts.put(e, data.getEdgeWeight(path[i], path[i + 1], "c"));
-                graphEdgeRoutes.put(e, new int[]{path[i], path[i + 1]});
-
-                // Add neighbor of i and i+1
-                if (!vertexNeighbors.containsKey(path[i])) {
-                    vertexNeighbors.put(path[i], new HashSet<>());
-                }
-                vertexNeighbors.get(path[i]).add(path[i + 1]);
-                if (!vertexNeighbors.containsKey(path[i + 1])) {
-                    vertexNeighbors.put(path[i + 1], new HashSet<>());
-                }
-                vertexNeighbors.get(path[i + 1]).add(path[i]);
+        for (int[] path : routes) {
+            if (path != null) {
+                addCandidatePath(path, graphEdgeCosts, graphEdgeRoutes, vertexNeighbors);
             }
         }
 
@@ -217,22 +339,30 @@ public class Solver {
             vertices[i++] = vertex;
         }
         Arrays.sort(vertices);
-        return new Object[]{vertices, graphEdgeCosts, graphEdgeRoutes};
+
+        // Keep routes packed.
+        HashMap<Edge, Route> packedRoutes = new HashMap<>();
+        for (Edge edge : graphEdgeRoutes.keySet()) {
+            packedRoutes.put(edge, new Route(graphEdgeRoutes.get(edge), data.getWidth()));
+        }
+        return new Object[]{vertices, graphEdgeCosts, packedRoutes};
 
     }
 
     public Object[] makeComponentCosts() {
-        HashMap<Edge, int[]> graphEdgeRoutes = data.getGraphEdgeRoutes();
+        HashMap<Edge, Route> graphEdgeRoutes = data.getGraphEdgeRoutes();
         HashMap<Edge, Double> constructionCosts = new HashMap<>();
         HashMap<Edge, Double> rightOfWayCosts = new HashMap<>();
 
         for (Edge edge : graphEdgeRoutes.keySet()) {
-            int[] route = graphEdgeRoutes.get(edge);
+            PrimitiveIterator.OfInt cells = graphEdgeRoutes.get(edge).iterator();
             double constructionCost = 0;
             double rightOfWayCost = 0;
-            for (int i = 0; i < route.length - 1; i++) {
-                rightOfWayCost += data.getEdgeRightOfWayCost(route[i], route[i + 1]);
-                constructionCost += data.getEdgeConstructionCost(route[i], route[i + 1]);
+            for (int cell = cells.nextInt(); cells.hasNext();) {
+                int next = cells.nextInt();
+                rightOfWayCost += data.getEdgeRightOfWayCost(cell, next);
+                constructionCost += data.getEdgeConstructionCost(cell, next);
+                cell = next;
             }
             constructionCosts.put(edge, constructionCost);
             rightOfWayCosts.put(edge, rightOfWayCost);
@@ -240,108 +370,213 @@ public class Solver {
         return new Object[]{rightOfWayCosts, constructionCosts};
     }
 
-    // Modfidied dijkstra for operating on cost surface and allowing to change edge weights
-    public Object[] dijkstra(int src, int[] destinations, double edgeCostModification) {
-        HashSet<Integer> connectedDests = new HashSet<>();
-        for (int cell : destinations) {
-            connectedDests.add(cell);
-        }
-        int numNodes = data.getHeight() * data.getWidth() + 1;
-        PriorityQueue<Data> pQueue = new PriorityQueue<>(numNodes);
-        double[] costs = new double[numNodes];
-        int[] previous = new int[numNodes];
-        Data[] map = new Data[numNodes];
-
-        for (int cellNum = 0; cellNum < numNodes; cellNum++) {
-            costs[cellNum] = Double.MAX_VALUE;
-            previous[cellNum] = -1;
-            map[cellNum] = new Data(cellNum, costs[cellNum]);
+    // Assign each Delaunay pair to one of its vertices so a single search from that vertex routes all its pairs.
+    // Vertices are taken greedily by number of unassigned pairs, ties to the lower cell, to keep the number of searches small.
+    private HashMap<Integer, int[]> groupPairsByVertex(HashSet<Edge> pairs) {
+        HashMap<Integer, HashSet<Integer>> unassigned = new HashMap<>();
+        for (Edge pair : pairs) {
+            if (!unassigned.containsKey(pair.v1)) {
+                unassigned.put(pair.v1, new HashSet<>());
+            }
+            unassigned.get(pair.v1).add(pair.v2);
+            if (!unassigned.containsKey(pair.v2)) {
+                unassigned.put(pair.v2, new HashSet<>());
+            }
+            unassigned.get(pair.v2).add(pair.v1);
         }
 
-        costs[src] = 0;
-        map[src].distance = 0;
-        pQueue.add(map[src]);
-
-        while (!pQueue.isEmpty()) {
-            Data u = pQueue.poll();
-            if (!u.connected) {
-                u.connected = true;
-                connectedDests.remove(u.cellNum);
-                if (!connectedDests.isEmpty()) {
-                    for (int neighborCell : data.getNeighborCells(u.cellNum)) {
-                        if (neighborCell != 0) {
-                            double altDistance = costs[u.cellNum] + data.getModifiedEdgeRoutingCost(u.cellNum, neighborCell);
-                            if (altDistance < costs[neighborCell] && !map[neighborCell].connected) {
-                                costs[neighborCell] = altDistance;
-                                previous[neighborCell] = u.cellNum;
-
-                                map[neighborCell].distance = altDistance;
-                                pQueue.add(map[neighborCell]);
-                            }
-                        }
-                    }
-                } else {
-                    pQueue.clear();
+        LinkedHashMap<Integer, int[]> pairsByVertex = new LinkedHashMap<>();
+        while (!unassigned.isEmpty()) {
+            int vertex = -1;
+            for (int v : unassigned.keySet()) {
+                if (vertex < 0 || unassigned.get(v).size() > unassigned.get(vertex).size()
+                        || (unassigned.get(v).size() == unassigned.get(vertex).size() && v < vertex)) {
+                    vertex = v;
+                }
+            }
+            int[] destinations = new int[unassigned.get(vertex).size()];
+            int i = 0;
+            for (int destination : new TreeSet<>(unassigned.remove(vertex))) {
+                destinations[i++] = destination;
+                unassigned.get(destination).remove(vertex);
+                if (unassigned.get(destination).isEmpty()) {
+                    unassigned.remove(destination);
                 }
             }
+            pairsByVertex.put(vertex, destinations);
         }
+        return pairsByVertex;
+    }
 
-        // Build paths for nodes of interest.
-        ArrayList<int[]> paths = new ArrayList<>();
-        ArrayList<Double> pathCosts = new ArrayList<>();
-        for (int dest : destinations) {
-            ArrayList<Integer> pathList = new ArrayList<>();
-            int node = dest;
-            while (node != src) {
-                pathList.add(0, node);
-                node = previous[node];
+    // Add the cell to cell edges of a routed path to the candidate graph.
+    private void addCandidatePath(int[] path, HashMap<Edge, Double> graphEdgeCosts, HashMap<Edge, int[]> graphEdgeRoutes, HashMap<Integer, HashSet<Integer>> vertexNeighbors) {
+        for (int i = 0; i < path.length - 1; i++) {
+            Edge e = new Edge(path[i], path[i + 1]);
+            graphEdgeCosts.put(e, data.getEdgeWeight(path[i], path[i + 1], "c"));
+            graphEdgeRoutes.put(e, new int[]{path[i], path[i + 1]});
+
+            // Add neighbor of i and i+1
+            if (!vertexNeighbors.containsKey(path[i])) {
+                vertexNeighbors.put(path[i], new HashSet<>());
             }
-            pathList.add(0, node);
-
-            // Modify edge costs and recalculate real cost
-            double cost = 0;
-            for (int i = 0; i < pathList.size() - 1; i++) {
-                cost += data.getEdgeWeight(pathList.get(i), pathList.get(i + 1), "c");
-                data.updateModifiedEdgeRoutingCost(pathList.get(i), pathList.get(i + 1), edgeCostModification);
-                data.updateModifiedEdgeRoutingCost(pathList.get(i + 1), pathList.get(i), edgeCostModification);
+            vertexNeighbors.get(path[i]).add(path[i + 1]);
+            if (!vertexNeighbors.containsKey(path[i + 1])) {
+                vertexNeighbors.put(path[i + 1], new HashSet<>());
             }
-            pathCosts.add(cost);
-            paths.add(convertIntegerArray(pathList.toArray(new Integer[0])));
+            vertexNeighbors.get(path[i + 1]).add(path[i]);
         }
-        return new Object[]{paths, pathCosts};
     }
 
-    public void setMessenger(TextArea messenger) {
-        this.messenger = messenger;
+    // Time routing every Delaunay pair on the unmodified routing costs with each search mode.
+    public void benchmarkPairRouting() {
+        HashSet<Edge> delaunayPairs = data.getDelaunayPairs();
+        for (String searchMode : new String[]{"d", "a", "b", "ba", "c"}) {
+            search.resetCounters();
+            long startTime = System.nanoTime();
+            for (Edge pair : delaunayPairs) {
+                search.searchPaths(pair.v1, new int[]{pair.v2}, data.getRoutingCosts(), searchMode);
+            }
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            System.out.println("Search mode " + searchMode + ": " + String.format("%.1f", delaunayPairs.size() / seconds) + " pairs/s, " + search.getNumCellsSettled() / Math.max(search.getNumSearches(), 1) + " cells settled per pair.");
+        }
     }
 
-    public TextArea getMessenger() {
-        return messenger;
+    // Compare Delaunay pair routes refined from each routing pyramid level to exact routes on the unmodified routing costs.
+    public String pyramidGapReport() {
+        HashSet<Edge> delaunayPairs = data.getDelaunayPairs();
+        CostSurface routingCosts = data.getRoutingCosts();
+        int numLevels = data.getRoutingPyramid().getNumLevels();
+        double[] exactCosts = new double[delaunayPairs.size()];
+        long startTime = System.nanoTime();
+        int pairNum = 0;
+        for (Edge pair : delaunayPairs) {
+            exactCosts[pairNum++] = routeCost(search.shortestPaths(pair.v1, new int[]{pair.v2}, routingCosts, "ba")[0], routingCosts);
+        }
+        int numPairs = Math.max(delaunayPairs.size(), 1);
+        String report = "Routing pyramid report (" + delaunayPairs.size() + " pairs):\n"
+                + "Exact: " + String.format("%.2f", (System.nanoTime() - startTime) / 1e6 / numPairs) + " ms per pair";
+        for (int level = 1; level <= numLevels; level++) {
+            double maxGap = 0;
+            double totalGap = 0;
+            startTime = System.nanoTime();
+            pairNum = 0;
+            for (Edge pair : delaunayPairs) {
+                double cost = routeCost(search.pyramidPaths(pair.v1, new int[]{pair.v2}, routingCosts, level)[0], routingCosts);
+                double exactCost = exactCosts[pairNum++];
+                double gap = exactCost > 0 && exactCost < Double.MAX_VALUE ? (cost - exactCost) / exactCost : 0;
+                maxGap = Math.max(maxGap, gap);
+                totalGap += gap;
+            }
+            report += "\nFrom " + (1 << level) + "x: " + String.format("%.2f", (System.nanoTime() - startTime) / 1e6 / numPairs) + " ms per pair, cost gap max "
+                    + maxGap * 100 + "%, mean " + totalGap / numPairs * 100 + "%";
+        }
+        return report;
     }
 
-    private class Data implements Comparable<Data> {
+    private double routeCost(int[] route, CostSurface costs) {
+        if (route == null) {
+            return Double.MAX_VALUE;
+        }
+        double cost = 0;
+        for (int i = 0; i < route.length - 1; i++) {
+            cost += costs.getCost(route[i], data.getNeighborNum(route[i], route[i + 1]));
+        }
+        return cost;
+    }
 
-        public int cellNum;
-        public double distance;
-        public boolean connected = false;
+    // Least routing cost from the nearest of sources to every cell, with the path back from each cell.
+    public AccumulatedCostRaster accumulatedRoutingCosts(int[] sources) {
+        return FastSweeping.accumulate(data.getRoutingCosts(), data.getWidth(), data.getHeight(), sources);
+    }
 
-        public Data(int cellNum, double distance) {
-            this.cellNum = cellNum;
-            this.distance = distance;
+    // Modfidied dijkstra for operating on cost surface and allowing to change edge weights
+    public Object[] dijkstra(int src, int[] destinations, double edgeCostModification) {
+        return dijkstra(src, destinations, edgeCostModification, "d");
+    }
+
+    // Search mode "d" for Dijkstra, "a" for A*, "p" for parallel delta-stepping, "c" for the routing hierarchy, "m" for the routing pyramid, or for single destinations "b" for bidirectional Dijkstra or "ba" for bidirectional A*.
+    public Object[] dijkstra(int src, int[] destinations, double edgeCostModification, String searchMode) {
+        return modifyRouteCosts(search.shortestPaths(src, destinations, data.getModifiedRoutingCosts(), searchMode), edgeCostModification);
+    }
+
+    // Route from each srcs[i] to its destinations[i], as dijkstra would in order. With a routing round size above 1,
+    // each round of searches runs concurrently against the penalties left by earlier rounds, then the round's
+    // penalties are applied in order. Results are the same for any number of threads.
+    public Object[][] dijkstraInRounds(int[] srcs, int[][] destinations, double edgeCostModification, String searchMode) {
+        Object[][] pathsAndCosts = new Object[srcs.length][];
+        int roundSize = data.getRoutingRoundSize();
+        if (roundSize <= 1) {
+            for (int i = 0; i < srcs.length; i++) {
+                pathsAndCosts[i] = dijkstra(srcs[i], destinations[i], edgeCostModification, searchMode);
+            }
+            return pathsAndCosts;
         }
 
-        @Override
-        public int compareTo(Data other) {
-            return Double.valueOf(distance).compareTo(other.distance);
+        // Penalties are only written between rounds, so searches within a round share a fixed snapshot.
+        CostSurface modifiedRoutingCosts = data.getModifiedRoutingCosts();
+        modifiedRoutingCosts.getMinCostPerStepLength();
+        for (int start = 0; start < srcs.length; start += roundSize) {
+            ArrayList<RouteSearch> searches = new ArrayList<>();
+            for (int i = start; i < Math.min(start + roundSize, srcs.length); i++) {
+                searches.add(new RouteSearch(srcs[i], destinations[i], modifiedRoutingCosts, searchMode));
+            }
+            ForkJoinTask.invokeAll(searches);
+            for (int i = 0; i < searches.size(); i++) {
+                pathsAndCosts[start + i] = modifyRouteCosts(searches.get(i).routes, edgeCostModification);
+            }
         }
+        return pathsAndCosts;
+    }
 
-        @Override
-        public int hashCode() {
-            return cellNum;
+    // Apply path sharing penalties to routes and calculate their real costs.
+    private Object[] modifyRouteCosts(int[][] routes, double edgeCostModification) {
+        ArrayList<int[]> paths = new ArrayList<>();
+        ArrayList<Double> pathCosts = new ArrayList<>();
+        for (int[] path : routes) {
+            double cost = path == null ? Double.MAX_VALUE : 0;    // Unreachable
+            for (int i = 0; path != null && i < path.length - 1; i++) {
+                cost += data.getEdgeWeight(path[i], path[i + 1], "c");
+                data.updateModifiedEdgeRoutingCost(path[i], path[i + 1], edgeCostModification);
+                data.updateModifiedEdgeRoutingCost(path[i + 1], path[i], edgeCostModification);
+            }
+            pathCosts.add(cost);
+            paths.add(path);
+        }
+        return new Object[]{paths, pathCosts};
+    }
+
+    private class RouteSearch extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int src;
+        private final int[] destinations;
+        private final CostSurface costs;
+        private final String searchMode;
+        public int[][] routes;
+
+        public RouteSearch(int src, int[] destinations, CostSurface costs, String searchMode) {
+            this.src = src;
+            this.destinations = destinations;
+            this.costs = costs;
+            this.searchMode = searchMode;
         }
 
-        public boolean equals(Data other) {
-            return distance == other.distance;
+        @Override
+        protected void compute() {
+            routes = search.shortestPaths(src, destinations, costs, searchMode);
         }
     }
+
+    public CostSurfaceSearch getSearch() {
+        return search;
+    }
+
+    public void setMessenger(TextArea messenger) {
+        this.messenger = messenger;
+    }
+
+    public TextArea getMessenger() {
+        return messenger;
+    }
 }
@@ -1,5 +1,11 @@
 package utilities;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
 /**
  *
  * @author yaw
@@ -34,4 +40,14 @@ public class Utilities {
         }
         return returnArray;
     }
+
+    // Rename source over target, atomically where the file system allows it, so readers of target see either the old
+    // file or the whole new one. Processes mapping the old file keep its pages.
+    public static void replaceFile(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
 }
@@ -0,0 +1,84 @@
+package dataStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * @author yaw
+ */
+public class CostFileParserTest {
+
+    @Test
+    public void neighborCostsAreParsed() throws IOException {
+        File file = writeCosts(0);
+        WritableCostSurface costs = CostFileParser.parse(file, grid());
+        assertTrue(costs instanceof SparseCostSurface);
+        assertEquals(5.5, costs.getCost(5, 3), 1e-12);
+        assertEquals(1.5, costs.getCost(1, 3), 1e-12);
+        assertEquals(Double.MAX_VALUE, costs.getCost(1, 7), 0);
+        file.delete();
+    }
+
+    @Test
+    public void cellThatIsNotANeighborIsReportedWithItsLine() throws IOException {
+        File file = writeCosts(7);
+        try {
+            CostFileParser.parse(file, grid());
+            fail("parsed a cell that is not a neighbor");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("line 17: cell 1 is not a neighbor of cell 7"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void cellWithMoreThanEightNeighborsIsReportedWithItsLine() throws IOException {
+        File file = File.createTempFile("Costs", ".txt");
+        try (PrintWriter out = new PrintWriter(file)) {
+            for (int i = 0; i < 8; i++) {
+                out.println("header");
+            }
+            out.println("5\t1\t2\t3\t4\t6\t7\t8\t9\t1");
+            out.println("AC\t1\t1\t1\t1\t1\t1\t1\t1\t1");
+        }
+        try {
+            CostFileParser.parse(file, grid());
+            fail("parsed a cell with more than 8 neighbors");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("line 9: cell 5 has more than 8 neighbors"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static DataStorer grid() {
+        DataStorer data = new DataStorer("", "", "");
+        data.setWidth(3);
+        data.setHeight(3);
+        return data;
+    }
+
+    // Costs over a 3 by 3 grid to each cell's right neighbor, of the cell plus a half. The cell line of badCell, if
+    // any, lists cell 1 in place of its neighbor.
+    private static File writeCosts(int badCell) throws IOException {
+        File file = File.createTempFile("Costs", ".txt");
+        try (PrintWriter out = new PrintWriter(file)) {
+            for (int i = 0; i < 8; i++) {
+                out.println("header");
+            }
+            for (int cell = 1; cell <= 9; cell++) {
+                if (cell % 3 != 0) {
+                    out.println(cell + "\t" + (cell == badCell ? 1 : cell + 1));
+                    out.println("AC\t" + (cell + .5));
+                }
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,30 @@
+package dataStore;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * @author yaw
+ */
+public class OverlayCostSurfaceTest {
+
+    @Test
+    public void minCostPerStepLengthFollowsEdgeLoweredTwice() {
+        ArrayCostSurface base = new ArrayCostSurface(10);
+        for (int cell = 1; cell < 10; cell++) {
+            for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                base.setCost(cell, neighborNum, neighborNum % 2 == 0 ? 20 : 10);
+            }
+        }
+        OverlayCostSurface overlay = new OverlayCostSurface(base);
+        assertEquals(10, overlay.getMinCostPerStepLength(), 1e-12);
+
+        overlay.setCost(5, 3, 8);
+        assertEquals(8, overlay.getMinCostPerStepLength(), 1e-12);
+        overlay.setCost(5, 3, 8 * 0.9999999);
+        assertEquals(8 * 0.9999999, overlay.getMinCostPerStepLength(), 1e-12);
+        overlay.setCost(5, 3, 4);
+        assertEquals(4, overlay.getMinCostPerStepLength(), 1e-12);
+        assertEquals(1, overlay.getNumChanges());
+    }
+}
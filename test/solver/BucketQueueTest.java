@@ -0,0 +1,80 @@
+package solver;
+
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * @author yaw
+ */
+public class BucketQueueTest {
+
+    @Test
+    public void keysBeyondTheRingArePolledInBucketOrder() {
+        int numCells = 100000;
+        BucketQueue queue = new BucketQueue(new IndexedHeap(numCells));
+        double width = .5;
+        queue.setWidth(width);
+        Random random = new Random(7);
+        double[] keys = new double[numCells];
+        int numQueued = 0;
+        int numPolled = 0;
+
+        // Queue keys from just past the last one polled to far past the largest ring, as a search would.
+        keys[0] = 0;
+        queue.update(0, 0);
+        numQueued++;
+        long lastBucket = 0;
+        while (!queue.isEmpty()) {
+            double bound = queue.peekKey();
+            int cell = queue.poll();
+            numPolled++;
+            long bucket = (long) (keys[cell] / width);
+            assertTrue(bucket >= lastBucket);
+            assertTrue(bound <= keys[cell]);
+            lastBucket = bucket;
+            for (int i = 0; i < 3 && numQueued < numCells; i++) {
+                double step = random.nextDouble() < .01 ? 1e6 * random.nextDouble() : width + 20 * random.nextDouble();
+                keys[numQueued] = keys[cell] + step;
+                queue.update(numQueued, keys[numQueued]);
+                numQueued++;
+            }
+        }
+        assertEquals(numQueued, numPolled);
+        assertEquals(numCells, numQueued);
+
+        // The queue is reusable once cleared.
+        queue.clear();
+        queue.setWidth(width);
+        queue.update(5, 3e7);
+        queue.update(6, 2);
+        assertEquals(6, queue.poll());
+        assertEquals(5, queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void keyLoweredWithinTheOverflowIsPolledOnce() {
+        BucketQueue queue = new BucketQueue(new IndexedHeap(10));
+        queue.setWidth(1);
+        queue.update(1, 0);
+        queue.update(2, 1e9);
+        queue.update(2, 5e8);
+        assertEquals(2, queue.size());
+        assertEquals(1, queue.poll());
+        assertEquals(5e8, queue.peekKey(), 1);
+        assertEquals(2, queue.poll());
+        assertTrue(queue.isEmpty());
+
+        // Lowered from the overflow into the ring, the cell is queued in both and returned twice.
+        queue.clear();
+        queue.setWidth(1);
+        queue.update(3, 1e9);
+        queue.update(3, 10);
+        assertEquals(2, queue.size());
+        assertEquals(3, queue.poll());
+        assertEquals(3, queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+}
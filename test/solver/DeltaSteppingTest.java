@@ -0,0 +1,89 @@
+package solver;
+
+import dataStore.ArrayCostSurface;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+/**
+ * @author yaw
+ */
+public class DeltaSteppingTest {
+
+    @Test
+    public void repeatedSearchesMatchDijkstraOverZeroCostEdges() {
+        int width = 70;
+        int height = 50;
+        int numCells = width * height + 1;
+        int[] neighborOffsets = {-width - 1, -width, -width + 1, 1, width + 1, width, width - 1, -1};
+        ArrayCostSurface surface = new ArrayCostSurface(numCells);
+        Random random = new Random(4);
+        for (int cell = 1; cell < numCells; cell++) {
+            int x = (cell - 1) % width;
+            for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                int neighbor = cell + neighborOffsets[neighborNum];
+                int nx = (neighbor - 1) % width;
+                if (neighbor >= 1 && neighbor < numCells && Math.abs(nx - x) <= 1) {
+                    surface.setCost(cell, neighborNum, random.nextDouble() < .3 ? 0 : 1 + 9 * random.nextDouble());
+                }
+            }
+        }
+
+        DeltaStepping deltaStepping = new DeltaStepping(numCells);
+        for (int search = 0; search < 20; search++) {
+            int src = 1 + random.nextInt(numCells - 1);
+            int[] destinations = {1 + random.nextInt(numCells - 1), 1 + random.nextInt(numCells - 1)};
+            int[][] paths = deltaStepping.shortestPaths(src, destinations, surface, width, 1 + search % 4 * 5);
+            double[] expected = dijkstra(surface, src, width, height);
+            for (int i = 0; i < destinations.length; i++) {
+                int[] path = paths[i];
+                assertNotNull(path);
+                assertEquals(src, path[0]);
+                assertEquals(destinations[i], path[path.length - 1]);
+                double pathCost = 0;
+                for (int j = 0; j < path.length - 1; j++) {
+                    for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                        if (path[j] + neighborOffsets[neighborNum] == path[j + 1]) {
+                            pathCost += surface.getCost(path[j], neighborNum);
+                        }
+                    }
+                }
+                assertEquals(expected[destinations[i]], pathCost, 1e-9);
+            }
+        }
+
+        // A walled off cell stays unreachable after earlier searches reached it.
+        int walled = 1 + 25 * width + 35;
+        for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+            surface.setCost(walled + neighborOffsets[neighborNum], (neighborNum + 4) % 8, Double.MAX_VALUE);
+        }
+        assertNull(deltaStepping.shortestPaths(1, new int[]{walled}, surface, width, 5)[0]);
+    }
+
+    private static double[] dijkstra(ArrayCostSurface surface, int src, int width, int height) {
+        int numCells = width * height + 1;
+        int[] neighborOffsets = {-width - 1, -width, -width + 1, 1, width + 1, width, width - 1, -1};
+        double[] costs = new double[numCells];
+        Arrays.fill(costs, Double.MAX_VALUE);
+        boolean[] settled = new boolean[numCells];
+        IndexedHeap heap = new IndexedHeap(numCells);
+        costs[src] = 0;
+        heap.update(src, 0);
+        while (!heap.isEmpty()) {
+            int cell = heap.poll();
+            settled[cell] = true;
+            for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                double edgeCost = surface.getCost(cell, neighborNum);
+                int neighbor = cell + neighborOffsets[neighborNum];
+                if (edgeCost < Double.MAX_VALUE && !settled[neighbor] && costs[cell] + edgeCost < costs[neighbor]) {
+                    costs[neighbor] = costs[cell] + edgeCost;
+                    heap.update(neighbor, costs[neighbor]);
+                }
+            }
+        }
+        return costs;
+    }
+}
@@ -0,0 +1,141 @@
+package solver;
+
+import dataStore.ArrayCostSurface;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * @author yaw
+ */
+public class FastSweepingTest {
+
+    private static final double TOLERANCE = 1e-6;   // Relative error of float costs against double precision Dijkstra
+
+    @Test
+    public void sweptCostsMatchDijkstra() {
+        int width = 120;
+        int height = 90;
+        ArrayCostSurface surface = randomSurface(width, height, 0, new Random(1));
+        int[] sources = {1 + 45 * width + 60, 1 + 10 * width + 5, width * height};
+        AccumulatedCostRaster raster = FastSweeping.accumulate(surface, width, height, sources);
+        assertFalse(raster.isSearched());
+        checkRaster(raster, surface, width, height, sources);
+    }
+
+    @Test
+    public void zeroCostEdgesTraceBackToSources() {
+        int width = 80;
+        int height = 60;
+        ArrayCostSurface surface = randomSurface(width, height, .3, new Random(2));
+        int[] sources = {1 + 30 * width + 40};
+        checkRaster(FastSweeping.accumulate(surface, width, height, sources), surface, width, height, sources);
+    }
+
+    @Test
+    public void windingSurfaceFallsBackToDijkstra() {
+        // Vertical corridors joined alternately at the top and bottom, so the only route winds up and down
+        int width = 201;
+        int height = 20;
+        ArrayCostSurface surface = randomSurface(width, height, 0, new Random(3));
+        int[] neighborOffsets = {-width - 1, -width, -width + 1, 1, width + 1, width, width - 1, -1};
+        for (int x = 1; x < width; x += 2) {
+            int gap = (x / 2) % 2 == 0 ? height - 1 : 0;
+            for (int y = 0; y < height; y++) {
+                if (y != gap) {
+                    int cell = y * width + x + 1;
+                    for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                        surface.setCost(cell, neighborNum, Double.MAX_VALUE);
+                        int neighbor = cell + neighborOffsets[neighborNum];
+                        if (neighbor >= 1 && neighbor <= width * height) {
+                            surface.setCost(neighbor, (neighborNum + 4) % 8, Double.MAX_VALUE);
+                        }
+                    }
+                }
+            }
+        }
+        int[] sources = {1};
+        AccumulatedCostRaster raster = FastSweeping.accumulate(surface, width, height, sources);
+        assertTrue(raster.isSearched());
+        checkRaster(raster, surface, width, height, sources);
+    }
+
+    // Random edge costs, a fraction of them zero
+    private static ArrayCostSurface randomSurface(int width, int height, double zeroFraction, Random random) {
+        ArrayCostSurface surface = new ArrayCostSurface(width * height + 1);
+        int[] dx = {-1, 0, 1, 1, 1, 0, -1, -1};
+        int[] dy = {-1, -1, -1, 0, 1, 1, 1, 0};
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                    int nx = x + dx[neighborNum];
+                    int ny = y + dy[neighborNum];
+                    if (nx >= 0 && nx < width && ny >= 0 && ny < height) {
+                        double cost = random.nextDouble() < zeroFraction ? 0 : 1 + 9 * random.nextDouble();
+                        surface.setCost(y * width + x + 1, neighborNum, neighborNum % 2 == 0 ? cost * Math.sqrt(2) : cost);
+                    }
+                }
+            }
+        }
+        return surface;
+    }
+
+    // Each cell's cost is within tolerance of Dijkstra's, and its path leads from a source at that cost.
+    private static void checkRaster(AccumulatedCostRaster raster, ArrayCostSurface surface, int width, int height, int[] sources) {
+        double[] expected = dijkstra(surface, width, height, sources);
+        int[] neighborOffsets = {-width - 1, -width, -width + 1, 1, width + 1, width, width - 1, -1};
+        for (int cell = 1; cell <= width * height; cell++) {
+            if (expected[cell] == Double.MAX_VALUE) {
+                assertEquals(Float.POSITIVE_INFINITY, raster.getCost(cell), 0);
+                continue;
+            }
+            assertEquals(expected[cell], raster.getCost(cell), TOLERANCE * Math.max(expected[cell], 1));
+
+            int[] path = raster.pathTo(cell);
+            boolean fromSource = false;
+            for (int src : sources) {
+                fromSource |= path[0] == src;
+            }
+            assertTrue(fromSource);
+            assertEquals(cell, path[path.length - 1]);
+            double pathCost = 0;
+            for (int i = 0; i < path.length - 1; i++) {
+                for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                    if (path[i] + neighborOffsets[neighborNum] == path[i + 1]) {
+                        pathCost += surface.getCost(path[i], neighborNum);
+                    }
+                }
+            }
+            assertEquals(expected[cell], pathCost, TOLERANCE * Math.max(expected[cell], 1));
+        }
+    }
+
+    private static double[] dijkstra(ArrayCostSurface surface, int width, int height, int[] sources) {
+        int numCells = width * height + 1;
+        int[] neighborOffsets = {-width - 1, -width, -width + 1, 1, width + 1, width, width - 1, -1};
+        double[] costs = new double[numCells];
+        Arrays.fill(costs, Double.MAX_VALUE);
+        boolean[] settled = new boolean[numCells];
+        IndexedHeap heap = new IndexedHeap(numCells);
+        for (int src : sources) {
+            costs[src] = 0;
+            heap.update(src, 0);
+        }
+        while (!heap.isEmpty()) {
+            int cell = heap.poll();
+            settled[cell] = true;
+            for (int neighborNum = 0; neighborNum < 8; neighborNum++) {
+                double edgeCost = surface.getCost(cell, neighborNum);
+                int neighbor = cell + neighborOffsets[neighborNum];
+                if (edgeCost < Double.MAX_VALUE && !settled[neighbor] && costs[cell] + edgeCost < costs[neighbor]) {
+                    costs[neighbor] = costs[cell] + edgeCost;
+                    heap.update(neighbor, costs[neighbor]);
+                }
+            }
+        }
+        return costs;
+    }
+}
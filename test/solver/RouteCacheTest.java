@@ -0,0 +1,47 @@
+package solver;
+
+import java.io.File;
+import java.io.IOException;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+/**
+ * @author yaw
+ */
+public class RouteCacheTest {
+
+    @Test
+    public void sessionsSharingADiskFileKeepEachOthersRoutes() throws IOException {
+        File file = File.createTempFile("RouteCache", ".bin");
+        file.delete();
+        long fingerprint = 42;
+
+        // Both sessions index the new file before either appends.
+        RouteCache first = new RouteCache(1000);
+        RouteCache second = new RouteCache(1000);
+        assertNull(first.get(new RouteCache.Key(1, 2, fingerprint, 0, 0), file));
+        assertNull(second.get(new RouteCache.Key(3, 4, fingerprint, 0, 0), file));
+        first.put(new RouteCache.Key(1, 2, fingerprint, 0, 0), new int[]{1, 5, 2}, file);
+        second.put(new RouteCache.Key(3, 4, fingerprint, 0, 0), new int[]{3, 7, 8, 4}, file);
+        first.put(new RouteCache.Key(5, 6, fingerprint, 0, 0), null, file);
+
+        RouteCache later = new RouteCache(1000);
+        assertArrayEquals(new int[]{1, 5, 2}, later.get(new RouteCache.Key(1, 2, fingerprint, 0, 0), file));
+        assertArrayEquals(new int[]{3, 7, 8, 4}, later.get(new RouteCache.Key(3, 4, fingerprint, 0, 0), file));
+        assertEquals(RouteCache.UNREACHABLE, later.get(new RouteCache.Key(5, 6, fingerprint, 0, 0), file));
+        assertEquals(3, later.getNumDiskHits());
+
+        // A record indexed by one session and replaced under it is not trusted.
+        RouteCache stale = new RouteCache(1000);
+        assertNull(stale.get(new RouteCache.Key(9, 9, fingerprint, 0, 0), file));
+        file.delete();
+        RouteCache other = new RouteCache(1000);
+        other.put(new RouteCache.Key(7, 8, fingerprint, 0, 0), new int[]{7, 8}, file);
+        other.put(new RouteCache.Key(3, 4, fingerprint, 0, 0), new int[]{3, 4}, file);
+        assertArrayEquals(new int[]{3, 4}, new RouteCache(1000).get(new RouteCache.Key(3, 4, fingerprint, 0, 0), file));
+        assertNull(stale.get(new RouteCache.Key(1, 2, fingerprint, 0, 0), file));
+        file.delete();
+    }
+}